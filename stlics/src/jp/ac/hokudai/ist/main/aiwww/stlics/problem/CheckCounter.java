@@ -0,0 +1,164 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.problem;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 制約チェック(関係の評価)の回数を数えるクラスです．
+ * wrapで包んだ関係，もしくはinstrumentで作った問題の関係が評価されるたびに回数が増えます．
+ * 回数はスレッドの識別子で選んだ固定個数のカウンタ(ストライプ)に分けて原子的に数えるため，複数のスレッドから評価されても競合はわずかで，
+ * スレッドが入れ替わっても使う記憶域は増えません．評価しているスレッドがある間のcountは，その時点までの途中の値です．
+ * <p>
+ * 包んだ関係は表による関係(CrispTabledRelation，FuzzyTabledRelation)として扱われないため，制約の表を直接引く近道は使われず，
+ * すべての評価が数えられる代わりに実行時間は長くなります．アルゴリズムの比較には時間ではなく回数を用いてください．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class CheckCounter {
+
+	// 回数を数えるクリスプな関係
+	private class CountingCrispRelation extends CrispRelation {
+
+		private final CrispRelation rel_;
+
+		public CountingCrispRelation(final CrispRelation r) {
+			rel_ = r;
+		}
+
+		@Override
+		public boolean isSatisfied(final int value) {
+			increment();
+			return rel_.isSatisfied(value);
+		}
+
+		@Override
+		public boolean isSatisfied(final int value1, final int value2) {
+			increment();
+			return rel_.isSatisfied(value1, value2);
+		}
+
+		@Override
+		public boolean isSatisfied(final int value1, final int value2, final int value3) {
+			increment();
+			return rel_.isSatisfied(value1, value2, value3);
+		}
+
+		@Override
+		public boolean isSatisfied(final int ... vs) {
+			increment();
+			return rel_.isSatisfied(vs);
+		}
+
+	}
+
+	// 回数を数えるファジィな関係
+	private class CountingFuzzyRelation extends FuzzyRelation {
+
+		private final FuzzyRelation rel_;
+
+		public CountingFuzzyRelation(final FuzzyRelation r) {
+			rel_ = r;
+		}
+
+		@Override
+		public double satisfactionDegree(final int value) {
+			increment();
+			return rel_.satisfactionDegree(value);
+		}
+
+		@Override
+		public double satisfactionDegree(final int value1, final int value2) {
+			increment();
+			return rel_.satisfactionDegree(value1, value2);
+		}
+
+		@Override
+		public double satisfactionDegree(final int value1, final int value2, final int value3) {
+			increment();
+			return rel_.satisfactionDegree(value1, value2, value3);
+		}
+
+		@Override
+		public double satisfactionDegree(final int ... values) {
+			increment();
+			return rel_.satisfactionDegree(values);
+		}
+
+	}
+
+	static private final int STRIPES = 32;  // 2のべき乗
+	static private final int PAD = 8;  // 隣のストライプと同じキャッシュ・ラインに載らないよう間を空ける
+
+	private final AtomicLongArray cells_ = new AtomicLongArray(STRIPES * PAD);
+
+	private void increment() {
+		cells_.getAndIncrement(((int)Thread.currentThread().getId() & (STRIPES - 1)) * PAD);
+	}
+
+	/**
+	 * クリスプな関係を，評価の回数を数える関係で包みます．
+	 * @param r 関係
+	 * @return 包んだ関係
+	 */
+	public CrispRelation wrap(final CrispRelation r) {
+		return new CountingCrispRelation(r);
+	}
+
+	/**
+	 * ファジィな関係を，評価の回数を数える関係で包みます．
+	 * @param r 関係
+	 * @return 包んだ関係
+	 */
+	public FuzzyRelation wrap(final FuzzyRelation r) {
+		return new CountingFuzzyRelation(r);
+	}
+
+	/**
+	 * 関係を，評価の回数を数える関係で包みます．
+	 * Problem#createConstraintに渡す関係を包むのに用います．
+	 * @param r 関係(CrispRelationかFuzzyRelation)
+	 * @return 包んだ関係
+	 */
+	public Relation wrap(final Relation r) {
+		if(r instanceof FuzzyRelation) return wrap((FuzzyRelation)r);
+		if(r instanceof CrispRelation) return wrap((CrispRelation)r);
+		throw new IllegalArgumentException();
+	}
+
+	/**
+	 * すべての関係を包んだ問題の複製を返します．複製への割り当ては元の問題に影響しません．
+	 * @param p 問題
+	 * @return 関係の評価の回数が数えられる複製
+	 * @see Problem#copy()
+	 */
+	public Problem instrument(final Problem p) {
+		return p.copy(this);
+	}
+
+	/**
+	 * すべての関係を包んだクリスプ制約充足問題の複製を返します．複製への割り当ては元の問題に影響しません．
+	 * @param p クリスプ制約充足問題
+	 * @return 関係の評価の回数が数えられる複製
+	 * @see CrispProblem#copy()
+	 */
+	public CrispProblem instrument(final CrispProblem p) {
+		return (CrispProblem)p.copy(this);
+	}
+
+	/**
+	 * これまでの評価の回数(すべてのスレッドの合計)を返します．
+	 * @return 回数
+	 */
+	public long count() {
+		long sum = 0;
+		for(int i = 0; i < STRIPES; ++i) sum += cells_.get(i * PAD);
+		return sum;
+	}
+
+	/**
+	 * 回数を0に戻します．評価しているスレッドがない間に呼び出してください．
+	 */
+	public void clear() {
+		for(int i = 0; i < STRIPES; ++i) cells_.set(i * PAD, 0);
+	}
+
+}
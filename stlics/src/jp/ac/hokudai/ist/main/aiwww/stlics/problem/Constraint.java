@@ -21,6 +21,16 @@ public abstract class Constraint extends Element {
 		rel_ = r;
 	}
 
+	// 変数vにindex番目の値を割り当てたと仮定したときの変数xの値を返す．
+	static int valueWith(final Variable x, final Variable v, final int index) {
+		return (x == v) ? x.domain().at(index) : x.value();
+	}
+
+	// 変数vにindex番目の値を割り当てたと仮定したときの変数xの値のインデックスを返す．
+	static int indexWith(final Variable x, final Variable v, final int index) {
+		return (x == v) ? index : x.domain().indexOf(x.value());
+	}
+
 	/**
 	 * 変数間のクリスプ関係を返します．
 	 * @return 変数間の関係
@@ -108,6 +118,26 @@ public abstract class Constraint extends Element {
 	 */
 	public abstract double satisfactionDegree();
 
+	/**
+	 * 指定した変数にそのドメインのindex番目の値を割り当てたと仮定して，充足しているかどうかを返します．
+	 * 変数の値は変更しないため，割り当てが変更されない間は複数のスレッドから同時に呼び出すことができます．
+	 * 関係が表によって定義され，変数が関係と同じドメインを持つ場合は，値を介さずに表を直接参照します．
+	 * @param v 変数
+	 * @param index vのドメインにおける値のインデックス
+	 * @return 充足しているなら1, していないなら0，未定義ならUNDEFINED
+	 */
+	public abstract int isSatisfiedWith(final Variable v, final int index);
+
+	/**
+	 * 指定した変数にそのドメインのindex番目の値を割り当てたと仮定して，充足度を求めます．
+	 * 変数の値は変更しないため，割り当てが変更されない間は複数のスレッドから同時に呼び出すことができます．
+	 * 関係が表によって定義され，変数が関係と同じドメインを持つ場合は，値を介さずに表を直接参照します．
+	 * @param v 変数
+	 * @param index vのドメインにおける値のインデックス
+	 * @return 充足度0.0~1.0，未定義ならUNDEFINED
+	 */
+	public abstract double satisfactionDegreeWith(final Variable v, final int index);
+
 	/**
 	 * 関連付けられた変数を介して接続されている制約の集合を返します．
 	 * @return 制約の集合
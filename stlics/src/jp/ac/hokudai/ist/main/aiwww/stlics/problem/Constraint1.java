@@ -85,6 +85,32 @@ public class Constraint1 extends Constraint {
 		return fuzzyRelation().satisfactionDegree(var_.value());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int isSatisfiedWith(final Variable v, final int index) {
+		if(v != var_) return isSatisfied();
+		if(rel_ instanceof CrispTabledRelation) {
+			final CrispTabledRelation t = (CrispTabledRelation)rel_;
+			if(t.domainAt(0) == var_.domain()) return t.isSatisfiedAt(index) ? 1 : 0;
+		}
+		return crispRelation().isSatisfied(var_.domain().at(index)) ? 1 : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double satisfactionDegreeWith(final Variable v, final int index) {
+		if(v != var_) return satisfactionDegree();
+		if(rel_ instanceof FuzzyTabledRelation) {
+			final FuzzyTabledRelation t = (FuzzyTabledRelation)rel_;
+			if(t.domainAt(0) == var_.domain()) return t.satisfactionDegreeAt(index);
+		}
+		return fuzzyRelation().satisfactionDegree(var_.domain().at(index));
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -98,6 +98,38 @@ public class Constraint3 extends Constraint {
 		return fuzzyRelation().satisfactionDegree(var1_.value(), var2_.value(), var3_.value());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int isSatisfiedWith(final Variable v, final int index) {
+		if(v != var1_ && v != var2_ && v != var3_) return isSatisfied();
+		if((v != var1_ && var1_.isEmpty()) || (v != var2_ && var2_.isEmpty()) || (v != var3_ && var3_.isEmpty())) return UNDEFINED;
+		if(rel_ instanceof CrispTabledRelation) {
+			final CrispTabledRelation t = (CrispTabledRelation)rel_;
+			if(t.domainAt(0) == var1_.domain() && t.domainAt(1) == var2_.domain() && t.domainAt(2) == var3_.domain()) {
+				return t.isSatisfiedAt(indexWith(var1_, v, index), indexWith(var2_, v, index), indexWith(var3_, v, index)) ? 1 : 0;
+			}
+		}
+		return crispRelation().isSatisfied(valueWith(var1_, v, index), valueWith(var2_, v, index), valueWith(var3_, v, index)) ? 1 : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double satisfactionDegreeWith(final Variable v, final int index) {
+		if(v != var1_ && v != var2_ && v != var3_) return satisfactionDegree();
+		if((v != var1_ && var1_.isEmpty()) || (v != var2_ && var2_.isEmpty()) || (v != var3_ && var3_.isEmpty())) return UNDEFINED;
+		if(rel_ instanceof FuzzyTabledRelation) {
+			final FuzzyTabledRelation t = (FuzzyTabledRelation)rel_;
+			if(t.domainAt(0) == var1_.domain() && t.domainAt(1) == var2_.domain() && t.domainAt(2) == var3_.domain()) {
+				return t.satisfactionDegreeAt(indexWith(var1_, v, index), indexWith(var2_, v, index), indexWith(var3_, v, index));
+			}
+		}
+		return fuzzyRelation().satisfactionDegree(valueWith(var1_, v, index), valueWith(var2_, v, index), valueWith(var3_, v, index));
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
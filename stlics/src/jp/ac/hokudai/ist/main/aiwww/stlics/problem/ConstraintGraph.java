@@ -0,0 +1,270 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.problem;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 問題の制約グラフを平坦な配列に写し取った不変のインデックスです．
+ * 変数間の隣接(制約を共有する変数)，制約間の隣接(変数を共有する制約)，隣接する2変数の間の制約をCSR形式の整数配列で保持します．
+ * 2変数の組は詰め合わせたキーのハッシュ表で引けるため，ソルバが変数の個数の2乗の大きさの表を持つ必要はありません．
+ * 生成にかかる時間とメモリは，制約の個数と次数の2乗の積に比例します．
+ * Problem#constraintGraph()によって生成され，問題の構造が変更されると自動的に無効化されます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public final class ConstraintGraph {
+
+	private final ProblemSnapshot ps_;
+
+	private final int[] nbrOffsets_;   // 変数iの隣接変数はnbrs_[nbrOffsets_[i]]～nbrs_[nbrOffsets_[i + 1] - 1](インデックスの昇順)
+	private final int[] nbrs_;
+	private final int[] pairOffsets_;  // nbrs_[e]との間の制約はpairCons_[pairOffsets_[e]]～pairCons_[pairOffsets_[e + 1] - 1]
+	private final int[] pairCons_;
+	private final int[] conNbrOffsets_;  // 制約iの隣接制約はconNbrs_[conNbrOffsets_[i]]～conNbrs_[conNbrOffsets_[i + 1] - 1]
+	private final int[] conNbrs_;
+	private final long[] pairKeys_;    // 変数の組(vi << 32 | vj)のハッシュ表(オープンアドレス法)
+	private final int[] pairEntries_;  // pairKeys_の各スロットに対応するnbrs_の位置
+
+	// Problemからのみ呼び出される．
+	ConstraintGraph(final ProblemSnapshot ps) {
+		ps_ = ps;
+		final int vs = ps.variableSize(), cs = ps.constraintSize();
+		final int[] marks = new int[Math.max(vs, cs)];
+		final int[] counts = new int[vs];
+		final int[] cursors = new int[vs];
+		int[] nbrs = new int[16], pairCons = new int[16];
+		int[] pairOffsets = new int[17];
+
+		// 変数間の隣接と，隣接する2変数の間の制約
+		Arrays.fill(marks, -1);
+		nbrOffsets_ = new int[vs + 1];
+		int ne = 0, pe = 0;
+		for(int vi = 0; vi < vs; ++vi) {
+			final int deg = ps.degreeOf(vi), base = ne;
+			for(int k = 0; k < deg; ++k) {
+				final int ci = ps.constraintIndexOf(vi, k);
+				for(int l = 0, n = ps.arityOf(ci); l < n; ++l) {
+					final int x = ps.variableIndexOf(ci, l);
+					if(x == vi) continue;
+					if(marks[x] != vi) {
+						marks[x] = vi;
+						counts[x] = 0;
+						if(nbrs.length == ne) nbrs = Arrays.copyOf(nbrs, ne * 2);
+						nbrs[ne++] = x;
+					}
+					++counts[x];
+				}
+			}
+			Arrays.sort(nbrs, base, ne);
+			if(pairOffsets.length < ne + 1) pairOffsets = Arrays.copyOf(pairOffsets, Math.max(ne + 1, pairOffsets.length * 2));
+			for(int e = base; e < ne; ++e) {
+				cursors[nbrs[e]] = pairOffsets[e];
+				pairOffsets[e + 1] = pairOffsets[e] + counts[nbrs[e]];
+			}
+			pe = pairOffsets[ne];
+			if(pairCons.length < pe) pairCons = Arrays.copyOf(pairCons, Math.max(pe, pairCons.length * 2));
+			for(int k = 0; k < deg; ++k) {  // 変数viの制約の順序で並べる(Problem#constraintsBetweenと同じ順序)
+				final int ci = ps.constraintIndexOf(vi, k);
+				for(int l = 0, n = ps.arityOf(ci); l < n; ++l) {
+					final int x = ps.variableIndexOf(ci, l);
+					if(x != vi) pairCons[cursors[x]++] = ci;
+				}
+			}
+			nbrOffsets_[vi + 1] = ne;
+		}
+		nbrs_ = Arrays.copyOf(nbrs, ne);
+		pairOffsets_ = Arrays.copyOf(pairOffsets, ne + 1);
+		pairCons_ = Arrays.copyOf(pairCons, pe);
+
+		// 変数の組から隣接の位置へのハッシュ表(負荷率を1/2以下に保つ)
+		final int cap = Integer.highestOneBit(Math.max(ne, 1)) << 2;
+		pairKeys_ = new long[cap];
+		pairEntries_ = new int[cap];
+		Arrays.fill(pairKeys_, -1);
+		for(int vi = 0; vi < vs; ++vi) {
+			for(int e = nbrOffsets_[vi]; e < nbrOffsets_[vi + 1]; ++e) {
+				final long key = keyOf(vi, nbrs_[e]);
+				final int i = slotOf(key);
+				pairKeys_[i] = key;
+				pairEntries_[i] = e;
+			}
+		}
+
+		// 制約間の隣接
+		Arrays.fill(marks, -1);
+		conNbrOffsets_ = new int[cs + 1];
+		int[] conNbrs = new int[16];
+		int ce = 0;
+		for(int ci = 0; ci < cs; ++ci) {
+			marks[ci] = ci;
+			for(int l = 0, n = ps.arityOf(ci); l < n; ++l) {  // スコープの変数の順，変数の制約の順に並べる(Constraint#neighborsと同じ順序)
+				final int x = ps.variableIndexOf(ci, l);
+				for(int k = 0, deg = ps.degreeOf(x); k < deg; ++k) {
+					final int cj = ps.constraintIndexOf(x, k);
+					if(marks[cj] == ci) continue;
+					marks[cj] = ci;
+					if(conNbrs.length == ce) conNbrs = Arrays.copyOf(conNbrs, ce * 2);
+					conNbrs[ce++] = cj;
+				}
+			}
+			conNbrOffsets_[ci + 1] = ce;
+		}
+		conNbrs_ = Arrays.copyOf(conNbrs, ce);
+	}
+
+	// Problem#copyからのみ呼び出される．構造を表す配列を共有し，スナップショットだけを差し替える．
+	ConstraintGraph(final ConstraintGraph src, final ProblemSnapshot ps) {
+		ps_ = ps;
+		nbrOffsets_ = src.nbrOffsets_;
+		nbrs_ = src.nbrs_;
+		pairOffsets_ = src.pairOffsets_;
+		pairCons_ = src.pairCons_;
+		conNbrOffsets_ = src.conNbrOffsets_;
+		conNbrs_ = src.conNbrs_;
+		pairKeys_ = src.pairKeys_;
+		pairEntries_ = src.pairEntries_;
+	}
+
+	static private long keyOf(final int vi, final int vj) {
+		return ((long)vi << 32) | vj;
+	}
+
+	// キーのスロット，またはキーがなければ空きスロットを返す．
+	private int slotOf(final long key) {
+		final int mask = pairKeys_.length - 1;
+		final int h = (int)(key ^ (key >>> 32)) * 0x9E3779B9;
+		int i = (h ^ (h >>> 16)) & mask;
+		while(pairKeys_[i] != -1 && pairKeys_[i] != key) i = (i + 1) & mask;
+		return i;
+	}
+
+	// 変数用メソッド --------
+
+	/**
+	 * 変数に隣接する(制約を共有する)変数の個数を返します．
+	 * @param vi 変数のインデックス
+	 * @return 隣接する変数の個数
+	 */
+	public int neighborSizeOf(final int vi) {
+		return nbrOffsets_[vi + 1] - nbrOffsets_[vi];
+	}
+
+	/**
+	 * 変数に隣接するk番目の変数のインデックスを返します．隣接する変数はインデックスの昇順に並んでいます．
+	 * @param vi 変数のインデックス
+	 * @param k 0 <= k < neighborSizeOf(vi)
+	 * @return 隣接する変数のインデックス
+	 */
+	public int neighborIndexOf(final int vi, final int k) {
+		return nbrs_[nbrOffsets_[vi] + k];
+	}
+
+	/**
+	 * 変数に隣接するk番目の変数を返します．
+	 * @param vi 変数のインデックス
+	 * @param k 0 <= k < neighborSizeOf(vi)
+	 * @return 隣接する変数
+	 */
+	public Variable neighborOf(final int vi, final int k) {
+		return ps_.variableAt(nbrs_[nbrOffsets_[vi] + k]);
+	}
+
+	/**
+	 * 変数viに隣接する変数の中での，変数vjの位置を返します．
+	 * 変数の次数によらず定数時間で求まります．
+	 * @param vi 変数のインデックス
+	 * @param vj 変数のインデックス
+	 * @return 位置k．隣接していなければ-1
+	 */
+	public int neighborPositionOf(final int vi, final int vj) {
+		final int i = slotOf(keyOf(vi, vj));
+		return (pairKeys_[i] == -1) ? -1 : pairEntries_[i] - nbrOffsets_[vi];
+	}
+
+	/**
+	 * 変数viと，viに隣接するk番目の変数との間の制約の個数を返します．
+	 * @param vi 変数のインデックス
+	 * @param k 0 <= k < neighborSizeOf(vi)
+	 * @return 制約の個数
+	 */
+	public int constraintSizeBetween(final int vi, final int k) {
+		final int e = nbrOffsets_[vi] + k;
+		return pairOffsets_[e + 1] - pairOffsets_[e];
+	}
+
+	/**
+	 * 変数viと，viに隣接するk番目の変数との間のl番目の制約のインデックスを返します．
+	 * 制約は変数viに関連付けられた順序で並んでいます．
+	 * @param vi 変数のインデックス
+	 * @param k 0 <= k < neighborSizeOf(vi)
+	 * @param l 0 <= l < constraintSizeBetween(vi, k)
+	 * @return 制約のインデックス
+	 */
+	public int constraintIndexBetween(final int vi, final int k, final int l) {
+		return pairCons_[pairOffsets_[nbrOffsets_[vi] + k] + l];
+	}
+
+	/**
+	 * 変数viと，viに隣接するk番目の変数との間のl番目の制約を返します．
+	 * @param vi 変数のインデックス
+	 * @param k 0 <= k < neighborSizeOf(vi)
+	 * @param l 0 <= l < constraintSizeBetween(vi, k)
+	 * @return 制約
+	 */
+	public Constraint constraintBetween(final int vi, final int k, final int l) {
+		return ps_.constraintAt(pairCons_[pairOffsets_[nbrOffsets_[vi] + k] + l]);
+	}
+
+	/**
+	 * 2変数の間に存在する制約を指定したコレクションに取得します．
+	 * 結果はProblem#constraintsBetweenと同じです．
+	 * @param <T> コレクションの型
+	 * @param vi 変数1のインデックス
+	 * @param vj 変数2のインデックス
+	 * @param dest 取得する制約を保持するコレクション
+	 */
+	public <T extends Collection<Constraint>> void constraintsBetween(final int vi, final int vj, final T dest) {
+		dest.clear();
+		if(vi == vj) {  // 変数自身との間の制約は，その変数のすべての制約
+			for(int k = 0, deg = ps_.degreeOf(vi); k < deg; ++k) dest.add(ps_.constraintOf(vi, k));
+			return;
+		}
+		final int k = neighborPositionOf(vi, vj);
+		if(k == -1) return;
+		final int e = nbrOffsets_[vi] + k;
+		for(int l = pairOffsets_[e], n = pairOffsets_[e + 1]; l < n; ++l) dest.add(ps_.constraintAt(pairCons_[l]));
+	}
+
+	// 制約用メソッド --------
+
+	/**
+	 * 制約に隣接する(変数を共有する)制約の個数を返します．
+	 * @param ci 制約のインデックス
+	 * @return 隣接する制約の個数
+	 */
+	public int constraintNeighborSizeOf(final int ci) {
+		return conNbrOffsets_[ci + 1] - conNbrOffsets_[ci];
+	}
+
+	/**
+	 * 制約に隣接するk番目の制約のインデックスを返します．
+	 * 隣接する制約はConstraint#neighborsにLinkedHashSetを渡したときと同じ順序で並んでいます．
+	 * @param ci 制約のインデックス
+	 * @param k 0 <= k < constraintNeighborSizeOf(ci)
+	 * @return 隣接する制約のインデックス
+	 */
+	public int constraintNeighborIndexOf(final int ci, final int k) {
+		return conNbrs_[conNbrOffsets_[ci] + k];
+	}
+
+	/**
+	 * 制約に隣接するk番目の制約を返します．
+	 * @param ci 制約のインデックス
+	 * @param k 0 <= k < constraintNeighborSizeOf(ci)
+	 * @return 隣接する制約
+	 */
+	public Constraint constraintNeighborOf(final int ci, final int k) {
+		return ps_.constraintAt(conNbrs_[conNbrOffsets_[ci] + k]);
+	}
+
+}
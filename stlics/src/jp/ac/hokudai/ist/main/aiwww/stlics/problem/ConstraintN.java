@@ -106,6 +106,48 @@ public class ConstraintN extends Constraint {
 		return fuzzyRelation().satisfactionDegree(vals_);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int isSatisfiedWith(final Variable v, final int index) {
+		if(!constrains(v)) return isSatisfied();
+		boolean isTabled = rel_ instanceof CrispTabledRelation;
+		for(int i = 0; i < vars_.length; ++i) {
+			final Variable x = vars_[i];
+			if(x != v && x.isEmpty()) return UNDEFINED;
+			if(isTabled && ((CrispTabledRelation)rel_).domainAt(i) != x.domain()) isTabled = false;
+		}
+		final int[] vals = new int[vars_.length];  // 複数のスレッドから呼び出せるように作業用の配列を共有しない
+		if(isTabled) {
+			for(int i = 0; i < vars_.length; ++i) vals[i] = indexWith(vars_[i], v, index);
+			return ((CrispTabledRelation)rel_).isSatisfiedAt(vals) ? 1 : 0;
+		}
+		for(int i = 0; i < vars_.length; ++i) vals[i] = valueWith(vars_[i], v, index);
+		return crispRelation().isSatisfied(vals) ? 1 : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double satisfactionDegreeWith(final Variable v, final int index) {
+		if(!constrains(v)) return satisfactionDegree();
+		boolean isTabled = rel_ instanceof FuzzyTabledRelation;
+		for(int i = 0; i < vars_.length; ++i) {
+			final Variable x = vars_[i];
+			if(x != v && x.isEmpty()) return UNDEFINED;
+			if(isTabled && ((FuzzyTabledRelation)rel_).domainAt(i) != x.domain()) isTabled = false;
+		}
+		final int[] vals = new int[vars_.length];  // 複数のスレッドから呼び出せるように作業用の配列を共有しない
+		if(isTabled) {
+			for(int i = 0; i < vars_.length; ++i) vals[i] = indexWith(vars_[i], v, index);
+			return ((FuzzyTabledRelation)rel_).satisfactionDegreeAt(vals);
+		}
+		for(int i = 0; i < vars_.length; ++i) vals[i] = valueWith(vars_[i], v, index);
+		return fuzzyRelation().satisfactionDegree(vals);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
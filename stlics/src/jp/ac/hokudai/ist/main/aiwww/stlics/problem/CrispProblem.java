@@ -34,6 +34,22 @@ public class CrispProblem extends Problem {
 		return super.createConstraint(name, r, vs);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Problem newInstance() {
+		return new CrispProblem();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CrispProblem copy() {
+		return (CrispProblem)super.copy();
+	}
+
 	/**
 	 * ファジィ制約充足問題であるか，すなわちファジィ制約を含んでいるかどうかを返します．
 	 * @return 常にfalseを返します．
@@ -57,6 +73,8 @@ public class CrispProblem extends Problem {
 	 * @return 制約の充足数
 	 */
 	public int satisfiedConstraintSize() {
+		final IncrementalEvaluator e = evaluator();
+		if(e != null) return e.satisfiedConstraintSize();
 		int count = 0;
 		for(int i = 0; i < cons_.size(); ++i) {
 			if(cons_.get(i).isSatisfied() == 1) ++count;
@@ -71,6 +89,8 @@ public class CrispProblem extends Problem {
 	 * @return 制約のリスト
 	 */
 	public List<Constraint> violatingConstraints(final List<Constraint> cs) {
+		final IncrementalEvaluator e = evaluator();
+		if(e != null) return e.violatingConstraints(cs);
 		cs.clear();
 		for(int i = 0; i < cons_.size(); ++i) {
 			final Constraint c = cons_.get(i);
@@ -85,6 +105,8 @@ public class CrispProblem extends Problem {
 	 * @return 制約の違反数
 	 */
 	public int violatingConstraintSize() {
+		final IncrementalEvaluator e = evaluator();
+		if(e != null) return e.violatingConstraintSize();
 		int count = 0;
 		for(int i = 0; i < cons_.size(); ++i) {
 			if(cons_.get(i).isSatisfied() == 0) ++count;
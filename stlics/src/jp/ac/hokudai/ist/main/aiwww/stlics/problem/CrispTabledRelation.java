@@ -1,25 +1,87 @@
 package jp.ac.hokudai.ist.main.aiwww.stlics.problem;
 
+import java.nio.LongBuffer;
+
 /**
  * 表によるクリスプな関係を表すクラスです．
+ * 表は1要素1ビットとして，最後の変数が最も速く変わる順に隙間なくlongの配列に詰めて保持します．
+ * 二項関係の支持を調べるときは，行が語の境界から始まるように並べ直した表を必要になった時点で作り，行単位の語ごとの論理積によって調べます．
+ * ただし二つ目の変数のドメインの大きさが64の倍数なら，表をそのまま使います．
+ * 語の配列の代わりに，メモリ・マップされたファイルなどのバッファを表として使うこともできます．
  * @author Takuto YANAGIDA
- * @version 2012/11/20
+ * @version 2026/10/17
  */
 public class CrispTabledRelation extends CrispRelation {
 
-	private final boolean[] elms_;
+	private final long[] words_;
+	private final LongBuffer wordBuf_;  // 配列でなくバッファで保持する場合に使う
 	private final Domain[] doms_;
-	private final int[] mul_;
+	private final int[] mul_;  // 各変数のインデックスに掛けるビット位置の重み
+	private volatile long[] rows_;  // 二項関係の行を語の境界にそろえた表，必要になった時点で作る
+	private volatile long[] cols_;  // 二項関係の転置表，必要になった時点で作る
 
+	/**
+	 * 表の要素を指定して関係を生成します．
+	 * @param elms 表の要素．最後の変数が最も速く変わる順に並べ，ドメインの大きさの積以上の個数が必要
+	 * @param doms 各変数のドメイン
+	 */
 	public CrispTabledRelation(final boolean[] elms, final Domain[] doms) {
-		elms_ = elms.clone();
 		doms_ = doms.clone();
 		mul_ = new int[doms.length];
+		final int size = initMultipliers();
+		if(elms.length < size) throw new IllegalArgumentException();
+		words_ = new long[wordSize(size)];
+		wordBuf_ = null;
+
+		for(int e = 0; e < size; ++e) {  // 表の要素は最後の変数が最も速く変わる順に並び，そのままビット位置になる
+			if(elms[e]) words_[e >>> 6] |= 1L << e;
+		}
+	}
+
+	/**
+	 * 語のバッファを表として関係を生成します．
+	 * バッファの現在位置から始まる語を複製せずに直接読むため，関係を使う間はバッファの内容を変更してはいけません．
+	 * 語の並びはwords()が返すものと同じでなければなりません．
+	 * @param words 表の語を持つバッファ
+	 * @param doms 各変数のドメイン
+	 */
+	public CrispTabledRelation(final LongBuffer words, final Domain[] doms) {
+		doms_ = doms.clone();
+		mul_ = new int[doms.length];
+		words_ = null;
+		wordBuf_ = words.slice();
+		if(wordBuf_.remaining() < wordSize(initMultipliers())) throw new IllegalArgumentException();
+	}
+
+	// ビット位置の重みを求め，表のビット数を返す．
+	private int initMultipliers() {
 		int m = 1;
 		for(int i = mul_.length - 1; i >= 0; --i) {
 			mul_[i] = m;
-			m *= doms[i].size();
+			m *= doms_[i].size();
 		}
+		return m;
+	}
+
+	static private int wordSize(final int bitSize) {
+		return (bitSize + Long.SIZE - 1) >>> 6;
+	}
+
+	private long wordAt(final int w) {
+		return (words_ != null) ? words_[w] : wordBuf_.get(w);
+	}
+
+	private boolean bitAt(final int b) {
+		return (wordAt(b >>> 6) & (1L << b)) != 0;
+	}
+
+	/**
+	 * 表の語の読み取り専用のビューを返します．
+	 * 語の並びは実装に依存しますが，同じドメインについてはCrispTabledRelation(LongBuffer, Domain[])にそのまま渡せます．
+	 * @return 表の語
+	 */
+	public LongBuffer words() {
+		return (words_ != null) ? LongBuffer.wrap(words_).asReadOnlyBuffer() : wordBuf_.asReadOnlyBuffer();
 	}
 
 	/**
@@ -31,7 +93,7 @@ public class CrispTabledRelation extends CrispRelation {
 	@Override
 	public boolean isSatisfied(final int value) {
 		if(mul_.length != 1) throw new UnsupportedOperationException();
-		return elms_[doms_[0].indexOf(value)];
+		return bitAt(doms_[0].indexOf(value));
 	}
 
 	/**
@@ -44,7 +106,7 @@ public class CrispTabledRelation extends CrispRelation {
 	@Override
 	public boolean isSatisfied(final int value1, final int value2) {
 		if(mul_.length != 2) throw new UnsupportedOperationException();
-		return elms_[mul_[0] * doms_[0].indexOf(value1) + mul_[1] * doms_[1].indexOf(value2)];
+		return bitAt(mul_[0] * doms_[0].indexOf(value1) + doms_[1].indexOf(value2));
 	}
 
 	/**
@@ -58,7 +120,7 @@ public class CrispTabledRelation extends CrispRelation {
 	@Override
 	public boolean isSatisfied(final int value1, final int value2, final int value3) {
 		if(mul_.length != 3) throw new UnsupportedOperationException();
-		return elms_[mul_[0] * doms_[0].indexOf(value1) + mul_[1] * doms_[1].indexOf(value2) + mul_[2] * doms_[2].indexOf(value3)];
+		return bitAt(mul_[0] * doms_[0].indexOf(value1) + mul_[1] * doms_[1].indexOf(value2) + doms_[2].indexOf(value3));
 	}
 
 	/**
@@ -72,7 +134,158 @@ public class CrispTabledRelation extends CrispRelation {
 		if(mul_.length != vs.length) throw new UnsupportedOperationException();
 		int index = 0;
 		for(int i = 0; i < mul_.length; ++i) index += mul_[i] * doms_[i].indexOf(vs[i]);
-		return elms_[index];
+		return bitAt(index);
+	}
+
+	/**
+	 * 関係を定義するのに用いたドメインを返します．
+	 * @param index 変数の位置
+	 * @return ドメイン
+	 */
+	public Domain domainAt(final int index) {
+		return doms_[index];
+	}
+
+	/**
+	 * ドメインにおけるインデックスを指定して，クリスプな単項関係において充足しているかどうかを返します．
+	 * 値からインデックスへの変換を行わないため，値を指定するよりも高速です．
+	 * @param index 変数の値のインデックス
+	 * @return 充足しているかどうか
+	 */
+	public boolean isSatisfiedAt(final int index) {
+		if(mul_.length != 1) throw new UnsupportedOperationException();
+		return bitAt(index);
+	}
+
+	/**
+	 * ドメインにおけるインデックスを指定して，クリスプな二項関係において充足しているかどうかを返します．
+	 * 値からインデックスへの変換を行わないため，値を指定するよりも高速です．
+	 * @param index1 一つ目の変数の値のインデックス
+	 * @param index2 二つ目の変数の値のインデックス
+	 * @return 充足しているかどうか
+	 */
+	public boolean isSatisfiedAt(final int index1, final int index2) {
+		if(mul_.length != 2) throw new UnsupportedOperationException();
+		return bitAt(mul_[0] * index1 + index2);
+	}
+
+	/**
+	 * ドメインにおけるインデックスを指定して，クリスプな三項関係において充足しているかどうかを返します．
+	 * 値からインデックスへの変換を行わないため，値を指定するよりも高速です．
+	 * @param index1 一つ目の変数の値のインデックス
+	 * @param index2 二つ目の変数の値のインデックス
+	 * @param index3 三つ目の変数の値のインデックス
+	 * @return 充足しているかどうか
+	 */
+	public boolean isSatisfiedAt(final int index1, final int index2, final int index3) {
+		if(mul_.length != 3) throw new UnsupportedOperationException();
+		return bitAt(mul_[0] * index1 + mul_[1] * index2 + index3);
+	}
+
+	/**
+	 * ドメインにおけるインデックスを指定して，クリスプな多項関係において充足しているかどうかを返します．
+	 * 値からインデックスへの変換を行わないため，値を指定するよりも高速です．
+	 * @param indices 各変数の値のインデックス
+	 * @return 充足しているかどうか
+	 */
+	public boolean isSatisfiedAt(final int... indices) {
+		if(mul_.length != indices.length) throw new UnsupportedOperationException();
+		int index = 0;
+		for(int i = 0; i < mul_.length; ++i) index += mul_[i] * indices[i];
+		return bitAt(index);
+	}
+
+	// 支持用メソッド --------
+
+	/**
+	 * 二項関係において，position番目の変数の値のインデックスがindexのとき，もう一方の変数の値の集合の中にこの関係を満たす値(支持)があれば，その最初のインデックスを返します．
+	 * 値の集合は相手の変数のドメインにおけるインデックスのビット集合で表し，i番目のビットが1ならi番目の値を含みます．
+	 * 語ごとの論理積によって調べるため，値ごとに評価するよりも高速です．
+	 * @param position 変数の位置(0または1)
+	 * @param index 変数の値のインデックス
+	 * @param bits 相手の変数の値の集合
+	 * @return 支持のインデックス，存在しないときは-1
+	 */
+	public int findSupport(final int position, final int index, final long[] bits) {
+		if(mul_.length != 2) throw new UnsupportedOperationException();
+		final long[] table;
+		final int rowWords;
+		if(position == 0) {
+			rowWords = wordSize(mul_[0]);
+			if((mul_[0] & (Long.SIZE - 1)) == 0 && words_ == null) {  // 行が語の境界にそろっていればバッファの行を直接調べる
+				final int o = index * rowWords;
+				for(int w = 0, n = Math.min(rowWords, bits.length); w < n; ++w) {
+					final long s = wordBuf_.get(o + w) & bits[w];
+					if(s != 0) return (w << 6) + Long.numberOfTrailingZeros(s);
+				}
+				return -1;
+			}
+			table = rows();
+		} else {
+			table = columns();
+			rowWords = wordSize(doms_[0].size());
+		}
+		final int o = index * rowWords;
+		for(int w = 0, n = Math.min(rowWords, bits.length); w < n; ++w) {
+			final long s = table[o + w] & bits[w];
+			if(s != 0) return (w << 6) + Long.numberOfTrailingZeros(s);
+		}
+		return -1;
+	}
+
+	/**
+	 * 二項関係において，position番目の変数の値のインデックスがindexのとき，もう一方の変数の値の集合の中にこの関係を満たす値(支持)があるかどうかを返します．
+	 * 値の集合の表し方はfindSupportと同じです．
+	 * @param position 変数の位置(0または1)
+	 * @param index 変数の値のインデックス
+	 * @param bits 相手の変数の値の集合
+	 * @return 支持があればtrue
+	 */
+	public boolean hasSupport(final int position, final int index, final long[] bits) {
+		return findSupport(position, index, bits) != -1;
+	}
+
+	// 二項関係の行を語の境界にそろえた表を返す．
+	private long[] rows() {
+		if((mul_[0] & (Long.SIZE - 1)) == 0) return words_;  // すでにそろっている
+		long[] rows = rows_;
+		if(rows == null) {
+			synchronized(this) {
+				rows = rows_;
+				if(rows == null) {
+					final int n0 = doms_[0].size(), n1 = doms_[1].size(), rowWords = wordSize(n1);
+					rows = new long[n0 * rowWords];
+					for(int i = 0; i < n0; ++i) {
+						for(int j = 0; j < n1; ++j) {
+							if(bitAt(mul_[0] * i + j)) rows[i * rowWords + (j >>> 6)] |= 1L << j;
+						}
+					}
+					rows_ = rows;
+				}
+			}
+		}
+		return rows;
+	}
+
+	// 二項関係の転置表を返す．
+	private long[] columns() {
+		long[] cols = cols_;
+		if(cols == null) {
+			synchronized(this) {
+				cols = cols_;
+				if(cols == null) {
+					final int n0 = doms_[0].size(), n1 = doms_[1].size(), rowWords = wordSize(n0);
+					cols = new long[n1 * rowWords];
+					for(int i = 0; i < n0; ++i) {
+						for(int j = 0; j < n1; ++j) {
+							if(bitAt(mul_[0] * i + j)) cols[j * rowWords + (i >>> 6)] |= 1L << i;
+						}
+					}
+					cols_ = cols;
+				}
+			}
+		}
+		return cols;
 	}
 
 }
@@ -13,6 +13,35 @@ import java.util.Random;
  */
 public abstract class Domain {
 
+	static private final int LINEAR_SEARCH_SIZE = 8;  // これ以下の要素数では線形探索の方が速い
+	static private final int DENSE_RATE = 2;  // 値の範囲が要素数のこの倍以下なら直接索引を使う
+
+	static Domain newDomain(final Collection<Integer> values) {
+		final int[] vs = new int[values.size()];
+		int i = 0;
+		for(Iterator<Integer> it = values.iterator(); it.hasNext();) {
+			vs[i++] = it.next();
+		}
+		return newDomain(vs);
+	}
+
+	// 要素の並びに応じて適切な実装を選ぶ．いずれの実装でも要素の順序は保存される．
+	static Domain newDomain(final int... values) {
+		final int n = values.length;
+		if(n == 0) return new DomainArbitrary(values);
+		boolean isConsecutive = true;
+		int min = values[0], max = values[0];
+		for(int i = 1; i < n; ++i) {
+			if((long)values[i] != (long)values[i - 1] + 1) isConsecutive = false;  // 境界で桁あふれしないようlongで比べる
+			if(values[i] < min) min = values[i];
+			if(values[i] > max) max = values[i];
+		}
+		if(isConsecutive) return new DomainRanged(values[0], values[n - 1]);
+		if(n <= LINEAR_SEARCH_SIZE) return new DomainArbitrary(values);
+		if((long)max - min + 1 <= (long)n * DENSE_RATE) return new DomainDense(values, min, max);
+		return new DomainSparse(values);
+	}
+
 	static Domain newDomainArbitrary(final Collection<Integer> values) {
 		return new DomainArbitrary(values);
 	}
@@ -62,6 +91,16 @@ public abstract class Domain {
 	 */
 	public abstract int random();
 
+	/**
+	 * 乱数生成器を指定して，消去されているかどうかに関係なく，任意の値を返します．
+	 * 種を指定した乱数生成器を用いれば結果が再現されます．
+	 * @param r 乱数生成器
+	 * @return 値
+	 */
+	public int random(final Random r) {
+		return at(r.nextInt(size()));
+	}
+
 }
 
 /**
@@ -160,3 +199,112 @@ class DomainRanged extends Domain {
 	}
 
 }
+
+/**
+ * 値の範囲が狭い任意の整数を要素として持つ，変数のドメインを表すクラスです．
+ * 最小値からのオフセットで引く索引表を持ち，contains，indexOfを定数時間で求めます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+class DomainDense extends Domain {
+
+	private final int[] values_;
+	private final int[] indices_;  // 値 - min_ からインデックスへの表，含まれないときは-1
+	private final int min_;
+
+	DomainDense(final int[] values, final int min, final int max) {
+		values_ = Arrays.copyOf(values, values.length);
+		indices_ = new int[max - min + 1];
+		min_ = min;
+		Arrays.fill(indices_, -1);
+		for(int i = values_.length - 1; i >= 0; --i) indices_[values_[i] - min] = i;  // 重複する値は先頭のものを優先
+	}
+
+	@Override
+	public boolean contains(final int value) {
+		return indexOf(value) != -1;
+	}
+
+	@Override
+	public int indexOf(final int value) {
+		final int o = value - min_;
+		if(o < 0 || o >= indices_.length) return -1;
+		return indices_[o];
+	}
+
+	@Override
+	public int size() {
+		return values_.length;
+	}
+
+	@Override
+	public int at(final int index) {
+		return values_[index];
+	}
+
+	@Override
+	public int random() {
+		return values_[RAND.nextInt(values_.length)];
+	}
+
+}
+
+/**
+ * 値の範囲が広い任意の整数を要素として持つ，変数のドメインを表すクラスです．
+ * 整列した値の配列を持ち，contains，indexOfを二分探索で求めます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+class DomainSparse extends Domain {
+
+	private final int[] values_;
+	private final int[] sorted_;   // 整列した値
+	private final int[] indices_;  // sorted_の各値のインデックス
+
+	DomainSparse(final int[] values) {
+		final int n = values.length;
+		values_ = Arrays.copyOf(values, n);
+		final long[] keys = new long[n];  // 上位に値，下位にインデックスを詰めて一度に整列する
+		for(int i = 0; i < n; ++i) keys[i] = ((long)values[i] << 32) | i;
+		Arrays.sort(keys);
+		sorted_ = new int[n];
+		indices_ = new int[n];
+		for(int i = 0; i < n; ++i) {
+			sorted_[i] = (int)(keys[i] >> 32);
+			indices_[i] = (int)keys[i];
+		}
+	}
+
+	@Override
+	public boolean contains(final int value) {
+		return indexOf(value) != -1;
+	}
+
+	@Override
+	public int indexOf(final int value) {
+		int lo = 0, hi = sorted_.length;
+		while(lo < hi) {  // 重複する値は先頭のものを優先するため，下限を求める
+			final int mid = (lo + hi) >>> 1;
+			if(sorted_[mid] < value) lo = mid + 1;
+			else hi = mid;
+		}
+		if(lo == sorted_.length || sorted_[lo] != value) return -1;
+		return indices_[lo];
+	}
+
+	@Override
+	public int size() {
+		return values_.length;
+	}
+
+	@Override
+	public int at(final int index) {
+		return values_[index];
+	}
+
+	@Override
+	public int random() {
+		return values_[RAND.nextInt(values_.length)];
+	}
+
+}
@@ -1,18 +1,37 @@
 package jp.ac.hokudai.ist.main.aiwww.stlics.problem;
 
+import java.nio.DoubleBuffer;
+
 /**
  * 表によるファジィな関係を表すクラスです．
+ * 表は配列か，メモリ・マップされたファイルなどのバッファで保持します．
  * @author Takuto YANAGIDA
- * @version 2012/11/20
+ * @version 2026/10/17
  */
 public class FuzzyTabledRelation extends FuzzyRelation {
 
 	private final double[] elms_;
+	private final DoubleBuffer elmBuf_;  // 配列でなくバッファで保持する場合に使う
 	private final Domain[] doms_;
 	private final int[] mul_;
 
 	public FuzzyTabledRelation(final double[] elms, final Domain[] doms) {
-		elms_ = elms.clone();
+		this(elms.clone(), null, doms);
+	}
+
+	/**
+	 * バッファを表として関係を生成します．
+	 * バッファの現在位置から始まる要素を複製せずに直接読むため，関係を使う間はバッファの内容を変更してはいけません．
+	 * @param elms 表の要素を持つバッファ(最後の変数が最も速く変わる順)
+	 * @param doms 各変数のドメイン
+	 */
+	public FuzzyTabledRelation(final DoubleBuffer elms, final Domain[] doms) {
+		this(null, elms.slice(), doms);
+	}
+
+	private FuzzyTabledRelation(final double[] elms, final DoubleBuffer elmBuf, final Domain[] doms) {
+		elms_ = elms;
+		elmBuf_ = elmBuf;
 		doms_ = doms.clone();
 		mul_ = new int[doms.length];
 		int m = 1;
@@ -20,6 +39,19 @@ public class FuzzyTabledRelation extends FuzzyRelation {
 			mul_[i] = m;
 			m *= doms[i].size();
 		}
+		if(elmBuf_ != null && elmBuf_.remaining() < m) throw new IllegalArgumentException();
+	}
+
+	private double elementAt(final int index) {
+		return (elms_ != null) ? elms_[index] : elmBuf_.get(index);
+	}
+
+	/**
+	 * 表の要素の読み取り専用のビューを返します．要素は最後の変数が最も速く変わる順に並んでいます．
+	 * @return 表の要素
+	 */
+	public DoubleBuffer elements() {
+		return (elms_ != null) ? DoubleBuffer.wrap(elms_).asReadOnlyBuffer() : elmBuf_.asReadOnlyBuffer();
 	}
 
 	/**
@@ -30,7 +62,7 @@ public class FuzzyTabledRelation extends FuzzyRelation {
 	@Override
 	public double satisfactionDegree(final int value) {
 		if(mul_.length != 1) throw new UnsupportedOperationException();
-		return elms_[doms_[0].indexOf(value)];
+		return elementAt(doms_[0].indexOf(value));
 	}
 
 	/**
@@ -42,7 +74,7 @@ public class FuzzyTabledRelation extends FuzzyRelation {
 	@Override
 	public double satisfactionDegree(final int value1, final int value2) {
 		if(mul_.length != 2) throw new UnsupportedOperationException();
-		return elms_[mul_[0] * doms_[0].indexOf(value1) + mul_[1] * doms_[1].indexOf(value2)];
+		return elementAt(mul_[0] * doms_[0].indexOf(value1) + mul_[1] * doms_[1].indexOf(value2));
 	}
 
 	/**
@@ -55,7 +87,7 @@ public class FuzzyTabledRelation extends FuzzyRelation {
 	@Override
 	public double satisfactionDegree(final int value1, final int value2, final int value3) {
 		if(mul_.length != 3) throw new UnsupportedOperationException();
-		return elms_[mul_[0] * doms_[0].indexOf(value1) + mul_[1] * doms_[1].indexOf(value2) + mul_[2] * doms_[2].indexOf(value3)];
+		return elementAt(mul_[0] * doms_[0].indexOf(value1) + mul_[1] * doms_[1].indexOf(value2) + mul_[2] * doms_[2].indexOf(value3));
 	}
 
 	/**
@@ -68,7 +100,65 @@ public class FuzzyTabledRelation extends FuzzyRelation {
 		if(mul_.length != vs.length) throw new UnsupportedOperationException();
 		int index = 0;
 		for(int i = 0; i < mul_.length; ++i) index += mul_[i] * doms_[i].indexOf(vs[i]);
-		return elms_[index];
+		return elementAt(index);
+	}
+
+	/**
+	 * 関係を定義するのに用いたドメインを返します．
+	 * @param index 変数の位置
+	 * @return ドメイン
+	 */
+	public Domain domainAt(final int index) {
+		return doms_[index];
+	}
+
+	/**
+	 * ドメインにおけるインデックスを指定して，ファジィな単項関係において充足度を計算します．
+	 * 値からインデックスへの変換を行わないため，値を指定するよりも高速です．
+	 * @param index 変数の値のインデックス
+	 * @return 充足度d (0.0 <= d <= 1.0)
+	 */
+	public double satisfactionDegreeAt(final int index) {
+		if(mul_.length != 1) throw new UnsupportedOperationException();
+		return elementAt(index);
+	}
+
+	/**
+	 * ドメインにおけるインデックスを指定して，ファジィな二項関係において充足度を計算します．
+	 * 値からインデックスへの変換を行わないため，値を指定するよりも高速です．
+	 * @param index1 一つ目の変数の値のインデックス
+	 * @param index2 二つ目の変数の値のインデックス
+	 * @return 充足度d (0.0 <= d <= 1.0)
+	 */
+	public double satisfactionDegreeAt(final int index1, final int index2) {
+		if(mul_.length != 2) throw new UnsupportedOperationException();
+		return elementAt(mul_[0] * index1 + index2);
+	}
+
+	/**
+	 * ドメインにおけるインデックスを指定して，ファジィな三項関係において充足度を計算します．
+	 * 値からインデックスへの変換を行わないため，値を指定するよりも高速です．
+	 * @param index1 一つ目の変数の値のインデックス
+	 * @param index2 二つ目の変数の値のインデックス
+	 * @param index3 三つ目の変数の値のインデックス
+	 * @return 充足度d (0.0 <= d <= 1.0)
+	 */
+	public double satisfactionDegreeAt(final int index1, final int index2, final int index3) {
+		if(mul_.length != 3) throw new UnsupportedOperationException();
+		return elementAt(mul_[0] * index1 + mul_[1] * index2 + index3);
+	}
+
+	/**
+	 * ドメインにおけるインデックスを指定して，ファジィな多項関係において充足度を計算します．
+	 * 値からインデックスへの変換を行わないため，値を指定するよりも高速です．
+	 * @param indices 各変数の値のインデックス
+	 * @return 充足度d (0.0 <= d <= 1.0)
+	 */
+	public double satisfactionDegreeAt(final int... indices) {
+		if(mul_.length != indices.length) throw new UnsupportedOperationException();
+		int index = 0;
+		for(int i = 0; i < mul_.length; ++i) index += mul_[i] * indices[i];
+		return elementAt(index);
 	}
 
 }
@@ -0,0 +1,235 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.problem;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 制約の充足状態を差分的に管理するクラスです．
+ * 変数への値の割り当てを記録しておき，問い合わせの際にその変数に関連する制約だけを再評価します．
+ * 違反している制約の集合と充足している制約の個数，充足度の最小ヒープを保持するため，
+ * 1反復あたりの評価の手間は制約の総数ではなく値の変更された変数の次数に比例します．
+ * Problem#setUsingIncrementalEvaluation(boolean)によって有効にされ，問題の構造が変更されると作り直されます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+final class IncrementalEvaluator {
+
+	static private final double EPSILON = Double.MIN_VALUE * 10;
+
+	private final Problem owner_;
+	private ProblemSnapshot ps_;  // nullのときは全体の再評価が必要
+
+	private double[] degs_;       // クリスプ制約は1.0(充足)，0.0(違反)，UNDEFINEDで表す
+	private boolean[] isCrisp_;
+
+	private int[] violated_;      // 違反しているクリスプ制約の集合
+	private int[] violatedPos_;   // 集合中の位置，含まれないときは-1
+	private int violatedSize_;
+	private int satisfiedSize_;
+
+	private int[] heap_;          // 充足度の最小ヒープ
+	private int[] heapPos_;
+
+	private int[] dirty_;         // 値の変更された変数
+	private boolean[] isDirty_;
+	private int dirtySize_;
+	private int[] stamps_;        // 制約ごとの再評価済みの印
+	private int stamp_;
+
+	private int[] worst_ = new int[0];
+
+	IncrementalEvaluator(final Problem owner) {
+		owner_ = owner;
+	}
+
+	// 問題の構造が変更されたときに呼び出される．
+	void reset() {
+		ps_ = null;
+	}
+
+	// Variable#assignから呼び出される．
+	void markDirty(final Variable v) {
+		if(ps_ == null) return;
+		final int vi = v.index();
+		if(vi < 0 || vi >= isDirty_.length || isDirty_[vi]) return;
+		isDirty_[vi] = true;
+		dirty_[dirtySize_++] = vi;
+	}
+
+	private void rebuild() {
+		ps_ = owner_.snapshot();
+		final int vs = ps_.variableSize(), cs = ps_.constraintSize();
+		degs_ = new double[cs];
+		isCrisp_ = new boolean[cs];
+		violated_ = new int[cs];
+		violatedPos_ = new int[cs];
+		heap_ = new int[cs];
+		heapPos_ = new int[cs];
+		stamps_ = new int[cs];
+		dirty_ = new int[vs];
+		isDirty_ = new boolean[vs];
+		dirtySize_ = 0;
+		violatedSize_ = 0;
+		satisfiedSize_ = 0;
+		stamp_ = 0;
+
+		for(int ci = 0; ci < cs; ++ci) {
+			final Constraint c = ps_.constraintAt(ci);
+			isCrisp_[ci] = !c.isFuzzy();
+			final double d = evaluate(ci);
+			degs_[ci] = d;
+			violatedPos_[ci] = -1;
+			if(isCrisp_[ci]) {
+				if(d == 1.0) ++satisfiedSize_;
+				else if(d == 0.0) addViolated(ci);
+			}
+			heap_[ci] = ci;
+			heapPos_[ci] = ci;
+		}
+		for(int i = cs / 2 - 1; i >= 0; --i) siftDown(i);
+	}
+
+	private double evaluate(final int ci) {
+		final Constraint c = ps_.constraintAt(ci);
+		if(isCrisp_[ci]) {
+			final int s = c.isSatisfied();
+			return s == Constraint.UNDEFINED ? Constraint.UNDEFINED : s;
+		}
+		return c.satisfactionDegree();
+	}
+
+	private void flush() {
+		if(ps_ == null) {
+			rebuild();
+			return;
+		}
+		if(dirtySize_ == 0) return;
+		if(++stamp_ == 0) {  // 一周したら印を消す
+			Arrays.fill(stamps_, 0);
+			stamp_ = 1;
+		}
+		for(int i = 0; i < dirtySize_; ++i) {
+			final int vi = dirty_[i];
+			isDirty_[vi] = false;
+			for(int k = 0, n = ps_.degreeOf(vi); k < n; ++k) {
+				final int ci = ps_.constraintIndexOf(vi, k);
+				if(stamps_[ci] == stamp_) continue;
+				stamps_[ci] = stamp_;
+				update(ci, evaluate(ci));
+			}
+		}
+		dirtySize_ = 0;
+	}
+
+	private void update(final int ci, final double d) {
+		final double old = degs_[ci];
+		if(old == d) return;
+		degs_[ci] = d;
+		if(isCrisp_[ci]) {
+			if(old == 1.0) --satisfiedSize_;
+			else if(old == 0.0) removeViolated(ci);
+			if(d == 1.0) ++satisfiedSize_;
+			else if(d == 0.0) addViolated(ci);
+		}
+		if(d < old) siftUp(heapPos_[ci]);
+		else siftDown(heapPos_[ci]);
+	}
+
+	private void addViolated(final int ci) {
+		violatedPos_[ci] = violatedSize_;
+		violated_[violatedSize_++] = ci;
+	}
+
+	private void removeViolated(final int ci) {
+		final int pos = violatedPos_[ci];
+		final int last = violated_[--violatedSize_];
+		violated_[pos] = last;
+		violatedPos_[last] = pos;
+		violatedPos_[ci] = -1;
+	}
+
+	private void siftUp(int pos) {
+		final int ci = heap_[pos];
+		final double d = degs_[ci];
+		while(pos > 0) {
+			final int parent = (pos - 1) >>> 1;
+			final int pc = heap_[parent];
+			if(degs_[pc] <= d) break;
+			heap_[pos] = pc;
+			heapPos_[pc] = pos;
+			pos = parent;
+		}
+		heap_[pos] = ci;
+		heapPos_[ci] = pos;
+	}
+
+	private void siftDown(int pos) {
+		final int n = heap_.length;
+		final int ci = heap_[pos];
+		final double d = degs_[ci];
+		while(true) {
+			int child = pos * 2 + 1;
+			if(child >= n) break;
+			if(child + 1 < n && degs_[heap_[child + 1]] < degs_[heap_[child]]) ++child;
+			final int cc = heap_[child];
+			if(d <= degs_[cc]) break;
+			heap_[pos] = cc;
+			heapPos_[cc] = pos;
+			pos = child;
+		}
+		heap_[pos] = ci;
+		heapPos_[ci] = pos;
+	}
+
+	// 問い合わせ用メソッド --------
+
+	int satisfiedConstraintSize() {
+		flush();
+		return satisfiedSize_;
+	}
+
+	int violatingConstraintSize() {
+		flush();
+		return violatedSize_;
+	}
+
+	List<Constraint> violatingConstraints(final List<Constraint> cs) {
+		flush();
+		cs.clear();
+		for(int i = 0; i < violatedSize_; ++i) cs.add(ps_.constraintAt(violated_[i]));
+		return cs;
+	}
+
+	double worstSatisfactionDegree() {
+		flush();
+		if(heap_.length == 0) return 1.0;
+		final double d = degs_[heap_[0]];
+		if(d == Constraint.UNDEFINED) return Constraint.UNDEFINED;
+		return d < 1.0 ? d : 1.0;
+	}
+
+	<T extends Collection<Constraint>> double constraintsWithWorstSatisfactionDegree(final T dest) {
+		flush();
+		dest.clear();
+		if(heap_.length == 0) return 1.0;
+		final double min = degs_[heap_[0]];
+		if(min > 1.0) return 1.0;
+		if(worst_.length < heap_.length) worst_ = new int[heap_.length];
+		final int size = collectWorst(0, min, 0);
+		Arrays.sort(worst_, 0, size);  // 全走査の場合と同じくインデックス順に並べる
+		for(int i = 0; i < size; ++i) dest.add(ps_.constraintAt(worst_[i]));
+		return min;
+	}
+
+	// 最小値との差がEPSILON未満の要素をヒープの部分木からworst_に集める．
+	private int collectWorst(final int pos, final double min, int size) {
+		if(pos >= heap_.length) return size;
+		final int ci = heap_[pos];
+		if(!(degs_[ci] - min < EPSILON)) return size;
+		worst_[size++] = ci;
+		size = collectWorst(pos * 2 + 1, min, size);
+		return collectWorst(pos * 2 + 2, min, size);
+	}
+
+}
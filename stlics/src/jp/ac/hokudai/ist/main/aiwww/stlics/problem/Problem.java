@@ -12,30 +12,36 @@ public class Problem {
 	private boolean isFuzzy_ = false;
 	private final List<Variable> vars_ = new ArrayList<>();
 	protected final List<Constraint> cons_ = new ArrayList<>();
+	private ProblemSnapshot snapshot_;
+	private ConstraintGraph graph_;
+	private IncrementalEvaluator evaluator_;
 
 	// 生成用メソッド --------
 
 	protected void addVariable(final Variable v) {
 		v.setIndex(vars_.size());
 		vars_.add(v);
+		invalidateSnapshot();
 	}
 
 	/**
 	 * 要素を指定してドメインを生成します．
+	 * 要素の並びに応じて，contains，indexOfの高速な実装が選ばれます．
 	 * @param values 複数の値
 	 * @return 生成されたドメイン
 	 */
 	public Domain createDomain(final Collection<Integer> values) {
-		return Domain.newDomainArbitrary(values);
+		return Domain.newDomain(values);
 	}
 
 	/**
 	 * 要素を指定してドメインを生成します．
+	 * 要素の並びに応じて，contains，indexOfの高速な実装が選ばれます．
 	 * @param values 複数の値
 	 * @return 生成されたドメイン
 	 */
 	public Domain createDomain(final int... values) {
-		return Domain.newDomainArbitrary(values);
+		return Domain.newDomain(values);
 	}
 
 	/**
@@ -109,18 +115,22 @@ public class Problem {
 		for(Variable v: vs) {
 			if(v.owner() != this) return null;
 		}
-		Constraint c;
-		if(vs.length == 1) c = new Constraint1(r, vs[0]);
-		else if(vs.length == 2) c = new Constraint2(r, vs[0], vs[1]);
-		else if(vs.length == 3) c = new Constraint3(r, vs[0], vs[1], vs[2]);
-		else c = new ConstraintN(r, vs);
+		final Constraint c = newConstraint(r, vs);
 		c.setIndex(cons_.size());
 		cons_.add(c);
 		for(Variable v: vs) v.connect(c);
 		if(c.isFuzzy()) isFuzzy_ = true;
+		invalidateSnapshot();
 		return c;
 	}
 
+	static private Constraint newConstraint(final Relation r, final Variable... vs) {
+		if(vs.length == 1) return new Constraint1(r, vs[0]);
+		if(vs.length == 2) return new Constraint2(r, vs[0], vs[1]);
+		if(vs.length == 3) return new Constraint3(r, vs[0], vs[1], vs[2]);
+		return new ConstraintN(r, vs);
+	}
+
 	/**
 	 * 名前と変数間の関係を指定して制約を生成します．
 	 * @param name 名前
@@ -156,6 +166,7 @@ public class Problem {
 				break;
 			}
 		}
+		invalidateSnapshot();
 	}
 
 	/**
@@ -172,6 +183,7 @@ public class Problem {
 	public void reverseVariables() {
 		Collections.reverse(vars_);
 		for(int i = 0, n = vars_.size(); i < n; ++i) vars_.get(i).setIndex(i);
+		invalidateSnapshot();
 	}
 
 	/**
@@ -182,6 +194,128 @@ public class Problem {
 	public void sortVariables(final Comparator<Variable> comparator) {
 		Collections.sort(vars_, comparator);
 		for(int i = 0, n = vars_.size(); i < n; ++i) vars_.get(i).setIndex(i);  // 必須
+		invalidateSnapshot();
+	}
+
+	// 複製用メソッド --------
+
+	/**
+	 * 空の問題を生成します．
+	 * copy()で複製先として用いられるため，サブクラスでは同じクラスのインスタンスを返すようにオーバーライドします．
+	 * @return 空の問題
+	 */
+	protected Problem newInstance() {
+		return new Problem();
+	}
+
+	/**
+	 * 問題の複製を返します．
+	 * 変数と制約は新たに生成され，変数の値，名前，userObjectが写されます．solverObjectは写されません．
+	 * ドメインとリレーションは共有され，スナップショットの隣接の配列も共有されるため，問題を組み立て直すよりも速く複製できます．
+	 * 複製への割り当ては元の問題に影響しないため，複数のソルバや再出発を並行して動かす際に用います．
+	 * ただし，ドメインとリレーションを変更してはいけません．
+	 * @return 複製された問題
+	 */
+	public Problem copy() {
+		return copy(null);
+	}
+
+	// 問題の複製を返す．counterがnullでなければ，関係をそれで包む．
+	Problem copy(final CheckCounter counter) {
+		final ProblemSnapshot ps = snapshot();
+		final Problem p = newInstance();
+		final int vs = ps.variableSize(), cs = ps.constraintSize();
+		final Variable[] vars = new Variable[vs];
+		final Constraint[] cons = new Constraint[cs];
+
+		for(int i = 0; i < vs; ++i) {
+			final Variable v = ps.variableAt(i);
+			final Variable cv = new Variable(p, v.domain());
+			cv.setIndex(i);
+			cv.setName(v.name());
+			cv.userObject = v.userObject;
+			if(!v.isEmpty()) cv.assign(v.value());
+			vars[i] = cv;
+		}
+		for(int i = 0; i < cs; ++i) {
+			final Constraint c = ps.constraintAt(i);
+			final Variable[] scope = new Variable[ps.arityOf(i)];
+			for(int k = 0; k < scope.length; ++k) scope[k] = vars[ps.variableIndexOf(i, k)];
+			Relation r = c.isFuzzy() ? c.fuzzyRelation() : c.crispRelation();
+			if(counter != null) r = counter.wrap(r);
+			final Constraint cc = newConstraint(r, scope);
+			cc.setIndex(i);
+			cc.setName(c.name());
+			cc.userObject = c.userObject;
+			cons[i] = cc;
+		}
+		for(int i = 0; i < vs; ++i) {  // 元の問題と同じ順序で，重複の確認をせずに関連付ける
+			final Variable cv = vars[i];
+			for(int k = 0, n = ps.degreeOf(i); k < n; ++k) cv.connectUnchecked(cons[ps.constraintIndexOf(i, k)]);
+		}
+		p.vars_.addAll(Arrays.asList(vars));
+		p.cons_.addAll(Arrays.asList(cons));
+		p.isFuzzy_ = isFuzzy_;
+		p.snapshot_ = new ProblemSnapshot(ps, vars, cons);
+		if(graph_ != null) p.graph_ = new ConstraintGraph(graph_, p.snapshot_);
+		if(evaluator_ != null) p.evaluator_ = new IncrementalEvaluator(p);
+		return p;
+	}
+
+	// スナップショット用メソッド --------
+
+	/**
+	 * 問題の構造を写し取ったスナップショットを返します．
+	 * スナップショットは必要になった時点で生成され，変数や制約の追加・削除，変数の並べ替え，ドメインの変更によって破棄されます．
+	 * 構造が変更されない限り同じインスタンスが返されるため，ソルバは探索のたびに呼び出してもかまいません．
+	 * @return スナップショット
+	 */
+	public ProblemSnapshot snapshot() {
+		if(snapshot_ == null) snapshot_ = new ProblemSnapshot(this);
+		return snapshot_;
+	}
+
+	/**
+	 * 問題の制約グラフを返します．
+	 * スナップショットと同様に，必要になった時点で生成され，問題の構造が変更されると破棄されます．
+	 * @return 制約グラフ
+	 */
+	public ConstraintGraph constraintGraph() {
+		if(graph_ == null) graph_ = new ConstraintGraph(snapshot());
+		return graph_;
+	}
+
+	// 構造が変更されたときに呼び出される．
+	void invalidateSnapshot() {
+		snapshot_ = null;
+		graph_ = null;
+		if(evaluator_ != null) evaluator_.reset();
+	}
+
+	// 差分評価用メソッド --------
+
+	/**
+	 * 制約の充足状態を差分的に管理するかどうかを設定します．
+	 * 有効にすると，変数への値の割り当てが記録され，違反制約や最悪充足度の問い合わせの際に値の変更された変数に関連する制約だけが再評価されます．
+	 * 問い合わせを反復ごとに行う確率的探索などで有効です．
+	 * ただし，この問題が所有する変数への割り当てだけが記録されます．
+	 * @param flag 管理するならtrue
+	 */
+	public void setUsingIncrementalEvaluation(final boolean flag) {
+		evaluator_ = flag ? new IncrementalEvaluator(this) : null;
+	}
+
+	/**
+	 * 制約の充足状態を差分的に管理しているかどうかを返します．
+	 * @return 管理しているならtrue
+	 */
+	public boolean isUsingIncrementalEvaluation() {
+		return evaluator_ != null;
+	}
+
+	// Variable#assignから呼び出される．
+	final IncrementalEvaluator evaluator() {
+		return evaluator_;
 	}
 
 	// 変数用メソッド --------
@@ -288,12 +422,17 @@ public class Problem {
 	 * 指定した変数との間に存在する制約を指定したコレクションに取得します．
 	 * 制約が存在しないときは空のコレクションを返します．
 	 * 2変数の間に複数の制約が存在する場合(n項制約(2 < n)が存在する場合も含む)それらが返り値のコレクションに含まれることとなります．
+	 * 制約グラフが生成済みの場合はそれを引き，そうでなければ変数v1の制約を走査します．
 	 * @param <T> コレクションの型
 	 * @param v1 変数1
 	 * @param v2 変数2
 	 * @param dest 取得する制約を保持するコレクション
 	 */
 	public <T extends Collection<Constraint>> void constraintsBetween(final Variable v1, final Variable v2, final T dest) {
+		if(graph_ != null && v1.owner() == this && v2.owner() == this) {
+			graph_.constraintsBetween(v1.index(), v2.index(), dest);
+			return;
+		}
 		dest.clear();
 		for(int i = 0, n = v1.size(); i < n; ++i) {
 			final Constraint c = v1.at(i);
@@ -308,6 +447,7 @@ public class Problem {
 	 * @return 最悪制約充足度
 	 */
 	public <T extends Collection<Constraint>> double constraintsWithWorstSatisfactionDegree(final T dest) {
+		if(evaluator_ != null) return evaluator_.constraintsWithWorstSatisfactionDegree(dest);
 		dest.clear();
 		double cs = 1.0;
 		for(int i = 0, n = cons_.size(); i < n; ++i) {
@@ -332,6 +472,7 @@ public class Problem {
 	 * @return 最悪制約充足度
 	 */
 	public double worstSatisfactionDegree() {
+		if(evaluator_ != null) return evaluator_.worstSatisfactionDegree();
 		double cs = 1.0;
 		for(int i = 0, n = cons_.size(); i < n; ++i) {
 			final double s = cons_.get(i).satisfactionDegree();
@@ -0,0 +1,165 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.problem;
+
+/**
+ * 問題の構造を平坦な配列に写し取った不変のインデックスです．
+ * 変数から制約への隣接，制約のスコープ，ドメインの通し番号をCSR形式の整数配列で保持し，
+ * ソルバの内側のループでリストやイテレータ，配列の生成を行わずに問題の構造をたどれるようにします．
+ * Problem#snapshot()によって生成され，問題の構造が変更されると自動的に無効化されます．
+ * 変数の値は保持しないため，値の変更によって無効化されることはありません．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public final class ProblemSnapshot {
+
+	private final Variable[] vars_;
+	private final Constraint[] cons_;
+
+	private final int[] varConOffsets_;  // 変数iの制約はvarCons_[varConOffsets_[i]]～varCons_[varConOffsets_[i + 1] - 1]
+	private final int[] varCons_;
+	private final int[] conVarOffsets_;  // 制約iのスコープはconVars_[conVarOffsets_[i]]～conVars_[conVarOffsets_[i + 1] - 1]
+	private final int[] conVars_;
+	private final int[] domOffsets_;     // 変数iのj番目の値の通し番号はdomOffsets_[i] + j
+
+	// Problemからのみ呼び出される．
+	ProblemSnapshot(final Problem p) {
+		final int vs = p.variableSize(), cs = p.constraintSize();
+		vars_ = p.variables().toArray(new Variable[vs]);
+		cons_ = p.constraints().toArray(new Constraint[cs]);
+
+		varConOffsets_ = new int[vs + 1];
+		domOffsets_ = new int[vs + 1];
+		for(int i = 0; i < vs; ++i) {
+			varConOffsets_[i + 1] = varConOffsets_[i] + vars_[i].size();
+			domOffsets_[i + 1] = domOffsets_[i] + vars_[i].domain().size();
+		}
+		varCons_ = new int[varConOffsets_[vs]];
+		for(int i = 0; i < vs; ++i) {
+			final Variable v = vars_[i];
+			for(int j = 0, n = v.size(), o = varConOffsets_[i]; j < n; ++j) varCons_[o + j] = v.at(j).index();
+		}
+
+		conVarOffsets_ = new int[cs + 1];
+		for(int i = 0; i < cs; ++i) conVarOffsets_[i + 1] = conVarOffsets_[i] + cons_[i].size();
+		conVars_ = new int[conVarOffsets_[cs]];
+		for(int i = 0; i < cs; ++i) {
+			final Constraint c = cons_[i];
+			for(int j = 0, n = c.size(), o = conVarOffsets_[i]; j < n; ++j) conVars_[o + j] = c.at(j).index();
+		}
+	}
+
+	// Problem#copyからのみ呼び出される．構造を表す配列を共有し，変数と制約だけを差し替える．
+	ProblemSnapshot(final ProblemSnapshot src, final Variable[] vars, final Constraint[] cons) {
+		vars_ = vars;
+		cons_ = cons;
+		varConOffsets_ = src.varConOffsets_;
+		varCons_ = src.varCons_;
+		conVarOffsets_ = src.conVarOffsets_;
+		conVars_ = src.conVars_;
+		domOffsets_ = src.domOffsets_;
+	}
+
+	// 変数用メソッド --------
+
+	/**
+	 * 変数の個数を返します．
+	 * @return 変数の個数
+	 */
+	public int variableSize() {
+		return vars_.length;
+	}
+
+	/**
+	 * インデックスを指定して変数を返します．
+	 * @param vi 変数のインデックス
+	 * @return 変数
+	 */
+	public Variable variableAt(final int vi) {
+		return vars_[vi];
+	}
+
+	/**
+	 * 変数に関連付けられた制約の個数(変数の次数)を返します．
+	 * @param vi 変数のインデックス
+	 * @return 制約の個数
+	 */
+	public int degreeOf(final int vi) {
+		return varConOffsets_[vi + 1] - varConOffsets_[vi];
+	}
+
+	/**
+	 * 変数に関連付けられたk番目の制約のインデックスを返します．
+	 * @param vi 変数のインデックス
+	 * @param k 0 <= k < degreeOf(vi)
+	 * @return 制約のインデックス
+	 */
+	public int constraintIndexOf(final int vi, final int k) {
+		return varCons_[varConOffsets_[vi] + k];
+	}
+
+	/**
+	 * 変数に関連付けられたk番目の制約を返します．
+	 * @param vi 変数のインデックス
+	 * @param k 0 <= k < degreeOf(vi)
+	 * @return 制約
+	 */
+	public Constraint constraintOf(final int vi, final int k) {
+		return cons_[varCons_[varConOffsets_[vi] + k]];
+	}
+
+	/**
+	 * 変数のドメインの先頭の値の通し番号を返します．
+	 * 変数viのj番目の値の通し番号はdomainOffsetOf(vi) + jとなり，全変数の値を一つの配列で扱う際の添え字として使えます．
+	 * @param vi 変数のインデックス
+	 * @return 値の通し番号
+	 */
+	public int domainOffsetOf(final int vi) {
+		return domOffsets_[vi];
+	}
+
+	/**
+	 * 全変数のドメインの大きさの総和を返します．
+	 * @return 値の総数
+	 */
+	public int valueSize() {
+		return domOffsets_[vars_.length];
+	}
+
+	// 制約用メソッド --------
+
+	/**
+	 * 制約の個数を返します．
+	 * @return 制約の個数
+	 */
+	public int constraintSize() {
+		return cons_.length;
+	}
+
+	/**
+	 * インデックスを指定して制約を返します．
+	 * @param ci 制約のインデックス
+	 * @return 制約
+	 */
+	public Constraint constraintAt(final int ci) {
+		return cons_[ci];
+	}
+
+	/**
+	 * 制約の次数を返します．
+	 * @param ci 制約のインデックス
+	 * @return 次数
+	 */
+	public int arityOf(final int ci) {
+		return conVarOffsets_[ci + 1] - conVarOffsets_[ci];
+	}
+
+	/**
+	 * 制約のスコープのk番目の変数のインデックスを返します．
+	 * @param ci 制約のインデックス
+	 * @param k 0 <= k < arityOf(ci)
+	 * @return 変数のインデックス
+	 */
+	public int variableIndexOf(final int ci, final int k) {
+		return conVars_[conVarOffsets_[ci] + k];
+	}
+
+}
@@ -30,6 +30,11 @@ public class Variable extends Element {
 		cons_.add(c);
 	}
 	
+	// Problem#copyからのみ呼び出される．
+	void connectUnchecked(final Constraint c) {
+		cons_.add(c);
+	}
+
 	// Problemからのみ呼び出される．
 	void deconnect(final Constraint c) {
 		if(!isConstrainedBy(c)) throw new IllegalArgumentException();
@@ -42,6 +47,8 @@ public class Variable extends Element {
 	 */
 	public void assign(final int value) {
 		val_ = value;  // ここ以外ではval_を変更しないこと．
+		final IncrementalEvaluator e = owner_.evaluator();
+		if(e != null) e.markDirty(this);
 	}
 
 	/**
@@ -66,6 +73,7 @@ public class Variable extends Element {
 	 */
 	public void setDomain(final Domain d) {
 		dom_ = d;
+		owner_.invalidateSnapshot();
 		clear();
 	}
 
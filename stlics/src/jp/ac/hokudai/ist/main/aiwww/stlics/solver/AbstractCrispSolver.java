@@ -1,15 +1,18 @@
 package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.CancelableSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.CrispSolver;
 
 /**
  * クリスプな制約充足問題のソルバを表す抽象クラスです．
- * ソルバに共通の動作(デバッグ)表示を提供します．
+ * ソルバに共通の動作(デバッグ)表示と，中止の要求，途中経過の報告，計測を提供します．
  * @author Takuto Yanagida
  * @version 2012/11/20
  */
-public abstract class AbstractCrispSolver extends DebugSolver implements Solver, CrispSolver {
+public abstract class AbstractCrispSolver extends DebugSolver implements Solver, CrispSolver, CancelableSolver {
 
 	/**
 	 * このソルバが対象とするクリスプな制約充足問題です．
@@ -31,11 +34,21 @@ public abstract class AbstractCrispSolver extends DebugSolver implements Solver,
 	 */
 	protected int timeLimit_ = -1;
 
+	/**
+	 * 探索の反復回数と時間の制限を管理します．execの始めにiterLimit_とtimeLimit_を指定して開始します．
+	 */
+	protected final SearchBudget budget_ = new SearchBudget();
+
 	/**
 	 * 目標の充足制約割合です．
 	 */
 	protected double targetDeg_ = 0.8;
 
+	private volatile boolean canceled_ = false;
+	private final List<ProgressListener> progressListeners_ = new CopyOnWriteArrayList<>();
+	private int progressInterval_ = 1000;
+	private SolverMetrics metrics_ = null;
+
 	/**
 	 * クリスプな制約充足問題を指定して，ソルバを生成します．
 	 * @param pro クリスプな制約充足問題
@@ -78,7 +91,15 @@ public abstract class AbstractCrispSolver extends DebugSolver implements Solver,
 			debugStream.println();
 			debugStream.println("---- " + name() + " started ----");
 		}
-		final boolean res = exec();
+		final boolean res;
+		if(metrics_ != null) metrics_.started();
+		try {
+			budget_.setProgressInterval(progressListeners_.isEmpty() ? -1 : progressInterval_);
+			res = exec();
+		} finally {
+			if(metrics_ != null) metrics_.finished(budget_.iterationCount());  // execが例外を投げても計測の始まりと対にする
+			canceled_ = false;  // 中止の要求は一度のsolveにだけ効く
+		}
 		if(debug) {
 			debugStream.println("Result: " + (res ? "success" : "failure"));
 			debugStream.println("Satisfied Constraint Rate: " + scr + " -> " + pro_.satisfiedConstraintRate());
@@ -123,4 +144,90 @@ public abstract class AbstractCrispSolver extends DebugSolver implements Solver,
 		targetDeg_ = rate;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void cancel() {
+		canceled_ = true;
+	}
+
+	/**
+	 * 中止が要求されたかどうかを返します．
+	 * volatileな変数を読むだけなので，探索の反復ごとに呼び出しても負担になりません．
+	 * @return 中止が要求されたならtrue
+	 */
+	protected boolean isCanceled() {
+		return canceled_;
+	}
+
+	/**
+	 * 計測値を設定します．設定するとsolveのたびにノードの数や時間などが加算されます．
+	 * @param m 計測値．nullなら計測しない
+	 */
+	public void setMetrics(final SolverMetrics m) {
+		metrics_ = m;
+	}
+
+	/**
+	 * 設定された計測値を返します．
+	 * @return 計測値．設定されていなければnull
+	 */
+	public SolverMetrics metrics() {
+		return metrics_;
+	}
+
+	/**
+	 * 計測値が設定されていれば，それを一つ増やします．
+	 * @param c 種類
+	 */
+	protected void count(final SolverMetrics.Counter c) {
+		if(metrics_ != null) metrics_.increment(c);
+	}
+
+	/**
+	 * 途中経過を受け取るリスナーを追加します．solveの途中で追加したリスナーには，次のsolveから通知されます．
+	 * @param l リスナー
+	 */
+	public void addProgressListener(final ProgressListener l) {
+		progressListeners_.add(l);
+	}
+
+	/**
+	 * 途中経過を受け取るリスナーを削除します．
+	 * @param l リスナー
+	 */
+	public void removeProgressListener(final ProgressListener l) {
+		progressListeners_.remove(l);
+	}
+
+	/**
+	 * 途中経過を報告する間隔を設定します．デフォルトは1000ミリ秒です．
+	 * @param msec 間隔(ミリ秒)
+	 */
+	public void setProgressInterval(final int msec) {
+		progressInterval_ = msec;
+	}
+
+	/**
+	 * 途中経過を報告します．探索の反復ごとにbudget_.isExhaustedと組にして呼び出されることを想定しており，
+	 * isExhaustedが時刻を読んだときに前回の報告から設定された間隔が経っていればリスナーに通知します．自身では時刻を読みません．
+	 * リスナーがなければ何もしません．
+	 * @param iteration 反復回数
+	 */
+	protected void progress(final int iteration) {
+		if(!budget_.pollProgress()) return;  // 時刻はbudget_.isExhaustedが読んでいる
+		fireProgress(iteration, pro_.satisfiedConstraintRate());
+	}
+
+	/**
+	 * 途中経過をすぐにリスナーに通知します．
+	 * 問題の複製を解く下位のソルバの途中経過を，このソルバの途中経過として伝えるのに用います．
+	 * @param iteration 反復回数
+	 * @param quality 割り当ての良さ
+	 */
+	protected void fireProgress(final int iteration, final double quality) {
+		for(ProgressListener l: progressListeners_) l.progressed(this, iteration, quality);
+	}
+
 }
@@ -12,15 +12,29 @@ public class DomainPruner {
 	static private final int UNHIDDEN = Integer.MIN_VALUE;
 
 	private final int[] hiddenLevels_;
+	private final long[] visible_;  // 消去されていない要素のビット集合
 	private int hiddenSize_ = 0;
+	private final PruningTrail trail_;
 
 	/**
 	 * ドメインの枝刈り情報を保持するクラスを生成します．
 	 * @param size 対応するドメインのサイズ
 	 */
 	public DomainPruner(final int size) {
+		this(size, null);
+	}
+
+	/**
+	 * トレイルを指定して，ドメインの枝刈り情報を保持するクラスを生成します．
+	 * hideした要素がトレイルに記録され，PruningTrail#reveal(int)によってまとめて復活できるようになります．
+	 * @param size 対応するドメインのサイズ
+	 * @param trail トレイル
+	 */
+	public DomainPruner(final int size, final PruningTrail trail) {
+		trail_ = trail;
 		hiddenLevels_ = new int[size];
-		Arrays.fill(hiddenLevels_, UNHIDDEN);
+		visible_ = new long[(size + Long.SIZE - 1) >>> 6];
+		revealAll();
 	}
 
 	/**
@@ -37,8 +51,22 @@ public class DomainPruner {
 	 * @param level レベル
 	 */
 	public void hide(final int index, final int level) {
-		if(hiddenLevels_[index] == UNHIDDEN) ++hiddenSize_;
+		if(hiddenLevels_[index] == UNHIDDEN) {
+			++hiddenSize_;
+			visible_[index >>> 6] &= ~(1L << index);
+		} else if(hiddenLevels_[index] == level) {
+			return;
+		}
 		hiddenLevels_[index] = level;
+		if(trail_ != null) trail_.push(this, index, level);
+	}
+
+	// PruningTrailから呼び出される．指定したレベルで消去されていた場合に限り復活する．
+	void unhide(final int index, final int level) {
+		if(hiddenLevels_[index] != level) return;  // 古い記録
+		hiddenLevels_[index] = UNHIDDEN;
+		visible_[index >>> 6] |= 1L << index;
+		--hiddenSize_;
 	}
 
 	/**
@@ -67,6 +95,7 @@ public class DomainPruner {
 		for(int i = 0; i < hiddenLevels_.length; i++) {
 			if(hiddenLevels_[i] == level) {
 				hiddenLevels_[i] = UNHIDDEN;
+				visible_[i >>> 6] |= 1L << i;
 				--hiddenSize_;
 			}
 		}
@@ -77,7 +106,19 @@ public class DomainPruner {
 	 */
 	public void revealAll() {
 		Arrays.fill(hiddenLevels_, UNHIDDEN);
+		Arrays.fill(visible_, -1L);
+		if(hiddenLevels_.length % Long.SIZE != 0) visible_[visible_.length - 1] = (1L << hiddenLevels_.length) - 1;
 		hiddenSize_ = 0;
 	}
 
+	/**
+	 * 消去されていない要素のビット集合を返します．
+	 * i番目のビットが1ならi番目の要素は消去されていません．
+	 * 返された配列は枝刈りに応じて変化し，その変更は許されません．
+	 * @return ビット集合
+	 */
+	public long[] visibleBits() {
+		return visible_;
+	}
+
 }
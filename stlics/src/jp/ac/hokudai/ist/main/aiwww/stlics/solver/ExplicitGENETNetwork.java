@@ -0,0 +1,223 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+import java.util.Arrays;
+import java.util.Random;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispTabledRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.FuzzyTabledRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ProblemSnapshot;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
+
+/**
+ * GENET系のソルバが用いるニューラルネットワークを，配列によって表現したクラスです．
+ * ニューロンはProblemSnapshotの値の通し番号で識別されます．
+ * 充足度が閾値以下となる値の組ごとにコネクションを張り，ニューロンごとのコネクションをCSR形式で保持します．
+ * 各ニューロンへの入力は活性化の変化と重みの更新のたびに差分で更新されるため，入力の取得に走査は必要ありません．
+ * 単項制約と2項制約のみに対応します．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class ExplicitGENETNetwork extends GENETNetwork {
+
+	private final int[] neuronOffsets_;  // クラスタiのj番目のニューロンの番号はneuronOffsets_[i] + j
+
+	private final int[] adjOffsets_;     // ニューロンnのコネクションはadj*_[adjOffsets_[n]]～adj*_[adjOffsets_[n + 1] - 1]
+	private final int[] adjNeurons_;     // コネクションの相手のニューロン(単項制約の場合は-1)
+	private final int[] adjConnections_; // コネクションの番号
+	private final double[] weights_;     // コネクションの重み
+	private final double[] increments_;  // 局所最小解で重みに加える値(充足度 - 1)
+
+	private final boolean[] isActive_;
+	private final double[] inputs_;      // ニューロンへの入力
+
+	/**
+	 * 問題と閾値を指定してネットワークを生成します．
+	 * 充足度が閾値以下となる値の組の間にコネクションが張られ，重みの初期値は充足度 - 1となります．
+	 * クリスプな制約の充足度は0か1として扱われるため，閾値を0とすると違反する値の組の間にのみ重み-1のコネクションが張られます．
+	 * 各クラスタの活性化しているニューロンは乱数によって選ばれます．
+	 * @param p 問題(単項制約と2項制約のみを含むもの)
+	 * @param threshold 閾値
+	 * @param r 乱数
+	 */
+	public ExplicitGENETNetwork(final Problem p, final double threshold, final Random r) {
+		super(p, threshold);
+		final ProblemSnapshot ps = p.snapshot();
+		final int vs = ps.variableSize(), ns = ps.valueSize();
+		neuronOffsets_ = new int[vs + 1];
+		for(int i = 0; i < vs; ++i) neuronOffsets_[i] = ps.domainOffsetOf(i);
+		neuronOffsets_[vs] = ns;
+
+		// コネクションの両端と増分を一時的な配列に集める
+		int size = 0;
+		int[] firsts = new int[16], seconds = new int[16];
+		double[] incs = new double[16];
+		for(int ci = 0, cs = ps.constraintSize(); ci < cs; ++ci) {
+			final Constraint c = ps.constraintAt(ci);
+			if(c.size() > 2) throw new IllegalArgumentException();
+			final int xi = ps.variableIndexOf(ci, 0), xo = neuronOffsets_[xi], xn = neuronOffsets_[xi + 1] - xo;
+			final int yi = (c.size() == 1) ? -1 : ps.variableIndexOf(ci, 1);
+			final int yo = (yi == -1) ? -1 : neuronOffsets_[yi], yn = (yi == -1) ? 1 : neuronOffsets_[yi + 1] - yo;
+			for(int i = 0; i < xn; ++i) {
+				for(int j = 0; j < yn; ++j) {
+					final double deg = (yi == -1) ? degreeAt(c, i) : degreeAt(c, i, j);
+					if(deg > threshold) continue;
+					if(size == firsts.length) {
+						firsts = Arrays.copyOf(firsts, size * 2);
+						seconds = Arrays.copyOf(seconds, size * 2);
+						incs = Arrays.copyOf(incs, size * 2);
+					}
+					firsts[size] = xo + i;
+					seconds[size] = (yi == -1) ? -1 : yo + j;
+					incs[size] = deg - 1.0;
+					++size;
+				}
+			}
+		}
+		increments_ = Arrays.copyOf(incs, size);
+		weights_ = increments_.clone();
+
+		// ニューロンごとの隣接をCSR形式にする
+		adjOffsets_ = new int[ns + 1];
+		for(int k = 0; k < size; ++k) {
+			++adjOffsets_[firsts[k] + 1];
+			if(seconds[k] != -1) ++adjOffsets_[seconds[k] + 1];
+		}
+		for(int n = 0; n < ns; ++n) adjOffsets_[n + 1] += adjOffsets_[n];
+		adjNeurons_ = new int[adjOffsets_[ns]];
+		adjConnections_ = new int[adjOffsets_[ns]];
+		final int[] fill = Arrays.copyOf(adjOffsets_, ns);
+		for(int k = 0; k < size; ++k) {
+			final int f = firsts[k], s = seconds[k];
+			adjNeurons_[fill[f]] = s;
+			adjConnections_[fill[f]++] = k;
+			if(s != -1) {
+				adjNeurons_[fill[s]] = f;
+				adjConnections_[fill[s]++] = k;
+			}
+		}
+
+		isActive_ = new boolean[ns];
+		inputs_ = new double[ns];
+		randomize(r);
+	}
+
+	// 単項制約の充足度を求める．表で定義された関係であればインデックスで参照する．
+	static private double degreeAt(final Constraint c, final int i) {
+		final Variable x = c.at(0);
+		final Domain dx = x.domain();
+		if(c.isFuzzy()) {
+			if(c.fuzzyRelation() instanceof FuzzyTabledRelation) {
+				final FuzzyTabledRelation t = (FuzzyTabledRelation)c.fuzzyRelation();
+				if(t.domainAt(0) == dx) return t.satisfactionDegreeAt(i);
+			}
+			return c.fuzzyRelation().satisfactionDegree(dx.at(i));
+		}
+		if(c.crispRelation() instanceof CrispTabledRelation) {
+			final CrispTabledRelation t = (CrispTabledRelation)c.crispRelation();
+			if(t.domainAt(0) == dx) return t.isSatisfiedAt(i) ? 1.0 : 0.0;
+		}
+		return c.crispRelation().isSatisfied(dx.at(i)) ? 1.0 : 0.0;
+	}
+
+	// 2項制約の充足度を求める．表で定義された関係であればインデックスで参照する．
+	static private double degreeAt(final Constraint c, final int i, final int j) {
+		final Domain dx = c.at(0).domain(), dy = c.at(1).domain();
+		if(c.isFuzzy()) {
+			if(c.fuzzyRelation() instanceof FuzzyTabledRelation) {
+				final FuzzyTabledRelation t = (FuzzyTabledRelation)c.fuzzyRelation();
+				if(t.domainAt(0) == dx && t.domainAt(1) == dy) return t.satisfactionDegreeAt(i, j);
+			}
+			return c.fuzzyRelation().satisfactionDegree(dx.at(i), dy.at(j));
+		}
+		if(c.crispRelation() instanceof CrispTabledRelation) {
+			final CrispTabledRelation t = (CrispTabledRelation)c.crispRelation();
+			if(t.domainAt(0) == dx && t.domainAt(1) == dy) return t.isSatisfiedAt(i, j) ? 1.0 : 0.0;
+		}
+		return c.crispRelation().isSatisfied(dx.at(i), dy.at(j)) ? 1.0 : 0.0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void activitiesReset() {
+		Arrays.fill(isActive_, false);
+		for(int i = 0; i < actives_.length; ++i) isActive_[neuronOffsets_[i] + actives_[i]] = true;
+		recomputeInputs();
+	}
+
+	/**
+	 * すべてのニューロンへの入力を，コネクションをたどって計算し直します．
+	 */
+	public void recomputeInputs() {
+		for(int n = 0; n < inputs_.length; ++n) inputs_[n] = inputOf(n);
+	}
+
+	// ニューロンnへの入力をコネクションをたどって求める．
+	private double inputOf(final int n) {
+		double ret = 0.0;
+		for(int a = adjOffsets_[n], e = adjOffsets_[n + 1]; a < e; ++a) {
+			final int m = adjNeurons_[a];  // mが-1なら単項制約の場合
+			if(m == -1 || isActive_[m]) ret += weights_[adjConnections_[a]];
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 以前のニューロンと新たなニューロンに隣接するニューロンの入力だけを更新します．
+	 */
+	@Override
+	protected void activityChanged(final int i, final int from, final int to) {
+		final int o = neuronOffsets_[i], f = o + from, t = o + to;
+		for(int a = adjOffsets_[f], e = adjOffsets_[f + 1]; a < e; ++a) {
+			final int m = adjNeurons_[a];
+			if(m != -1) inputs_[m] -= weights_[adjConnections_[a]];
+		}
+		isActive_[f] = false;
+		isActive_[t] = true;
+		for(int a = adjOffsets_[t], e = adjOffsets_[t + 1]; a < e; ++a) {
+			final int m = adjNeurons_[a];
+			if(m != -1) inputs_[m] += weights_[adjConnections_[a]];
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void inputsOf(final int i, final double[] dest) {
+		System.arraycopy(inputs_, neuronOffsets_[i], dest, 0, neuronOffsets_[i + 1] - neuronOffsets_[i]);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 両端のニューロンへの入力も合わせて更新されます．
+	 */
+	@Override
+	public void refreshWeights() {
+		for(int i = 0; i < actives_.length; ++i) {
+			final int n = neuronOffsets_[i] + actives_[i];
+			for(int a = adjOffsets_[n], e = adjOffsets_[n + 1]; a < e; ++a) {
+				final int m = adjNeurons_[a];
+				if(m != -1 && (m < n || !isActive_[m])) continue;  // 2項のコネクションは番号の小さい側からのみ数える
+				final int k = adjConnections_[a];
+				final double inc = increments_[k];
+				weights_[k] += inc;
+				inputs_[n] += inc;
+				if(m != -1) inputs_[m] += inc;
+			}
+		}
+	}
+
+	/**
+	 * コネクションの個数を返します．
+	 * @return コネクションの個数
+	 */
+	public int connectionSize() {
+		return weights_.length;
+	}
+
+}
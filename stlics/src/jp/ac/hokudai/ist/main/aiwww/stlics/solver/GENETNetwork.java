@@ -0,0 +1,137 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+import java.util.Random;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
+
+/**
+ * GENET系のソルバが用いるニューラルネットワークの抽象クラスです．
+ * 変数をクラスタ，変数の値をニューロンとし，各クラスタでは常に一つのニューロンが活性化しています．
+ * 充足度が閾値以下となる値の組の間にコネクションがあり，その重みは初期値が充足度 - 1で，局所最小解に到達するたびに充足度 - 1が加えられます．
+ * コネクションを配列として保持するExplicitGENETNetworkと，関係をその都度評価するImplicitGENETNetworkがあります．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+abstract public class GENETNetwork {
+
+	static private final double EPSILON = 1e-9;  // 入力の丸め誤差を吸収する
+
+	protected final Variable[] vars_;
+	protected final int[] actives_;  // クラスタごとの活性化しているニューロン(値)のドメインにおけるインデックス
+	protected final double threshold_;
+	private double[] inputs_;
+	private int[] maxNeurons_;
+
+	/**
+	 * 問題と閾値を指定してネットワークを生成します．
+	 * サブクラスは，コンストラクタの最後でrandomize(Random)を呼んで各クラスタの状態を初期化する必要があります．
+	 * @param p 問題
+	 * @param threshold 閾値
+	 */
+	protected GENETNetwork(final Problem p, final double threshold) {
+		final int vs = p.variableSize();
+		vars_ = new Variable[vs];
+		int max = 0;
+		for(int i = 0; i < vs; ++i) {
+			vars_[i] = p.variableAt(i);
+			final int s = vars_[i].domain().size();
+			if(s == 0) throw new IllegalArgumentException();
+			if(max < s) max = s;
+		}
+		actives_ = new int[vs];
+		threshold_ = threshold;
+		inputs_ = new double[max];
+		maxNeurons_ = new int[max];
+	}
+
+	/**
+	 * クラスタ内の各ニューロンへの入力を求めます．
+	 * @param i クラスタ(変数)のインデックス
+	 * @param dest 入力を格納する配列(長さはドメインのサイズ以上)
+	 */
+	abstract protected void inputsOf(final int i, final double[] dest);
+
+	/**
+	 * クラスタの活性化しているニューロンが変わったときに呼ばれます．
+	 * 呼ばれた時点でactives_はすでに更新されています．
+	 * @param i クラスタ(変数)のインデックス
+	 * @param from 以前に活性化していたニューロンのインデックス
+	 * @param to 新たに活性化したニューロンのインデックス
+	 */
+	abstract protected void activityChanged(final int i, final int from, final int to);
+
+	/**
+	 * すべてのクラスタの活性化しているニューロンが選び直されたときに呼ばれます．
+	 */
+	abstract protected void activitiesReset();
+
+	/**
+	 * 両端のニューロンが活性化しているコネクションの重みに充足度 - 1を加えます(局所最小解に到達したときに呼ばれる)．
+	 */
+	abstract public void refreshWeights();
+
+	/**
+	 * 各クラスタの活性化しているニューロンを乱数によって選び直します．
+	 * 重みは変更されません．
+	 * @param r 乱数
+	 */
+	public void randomize(final Random r) {
+		for(int i = 0; i < vars_.length; ++i) actives_[i] = r.nextInt(vars_[i].domain().size());
+		activitiesReset();
+	}
+
+	/**
+	 * クラスタ内で入力が最大のニューロンを活性化します．
+	 * 最大のニューロンが複数ある場合，活性化しているニューロンがその中にあれば変更せず，なければ乱数によって選びます．
+	 * @param i クラスタ(変数)のインデックス
+	 * @param r 乱数
+	 * @return 活性化しているニューロンが変わったらtrue
+	 */
+	public boolean activateMaximumInput(final int i, final Random r) {
+		final int n = vars_[i].domain().size(), cur = actives_[i];
+		inputsOf(i, inputs_);
+		double max = Double.NEGATIVE_INFINITY;
+		int size = 0;
+		boolean alreadyOn = false;
+		for(int j = 0; j < n; ++j) {
+			final double input = inputs_[j];
+			if(input > max + EPSILON) {
+				max = input;
+				size = 0;
+				alreadyOn = false;
+			} else if(input < max - EPSILON) {
+				continue;
+			}
+			maxNeurons_[size++] = j;
+			if(j == cur) alreadyOn = true;
+		}
+		if(alreadyOn || size == 0) return false;
+		final int to = maxNeurons_[r.nextInt(size)];
+		actives_[i] = to;
+		activityChanged(i, cur, to);
+		return true;
+	}
+
+	/**
+	 * 活性化しているニューロンの値を変数に割り当てます．
+	 */
+	public void applyToVariables() {
+		for(int i = 0; i < vars_.length; ++i) {
+			final Variable v = vars_[i];
+			v.assign(v.domain().at(actives_[i]));
+		}
+	}
+
+	/**
+	 * ニューロンへの入力を返します．
+	 * @param i クラスタ(変数)のインデックス
+	 * @param j ニューロン(値)のドメインにおけるインデックス
+	 * @return 入力
+	 */
+	public double inputAt(final int i, final int j) {
+		final double[] is = new double[vars_[i].domain().size()];
+		inputsOf(i, is);
+		return is[j];
+	}
+
+}
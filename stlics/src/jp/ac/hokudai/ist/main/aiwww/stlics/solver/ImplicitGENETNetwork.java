@@ -0,0 +1,212 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+import java.util.Arrays;
+import java.util.Random;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ProblemSnapshot;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
+
+/**
+ * GENET系のソルバが用いるニューラルネットワークを，コネクションを生成せずに表現したクラスです．
+ * コネクションはスコープの変数の値の組で暗黙に表され，ニューロンへの入力はそのたびに関係を評価して求めます．
+ * コネクションの重みは初期値(充足度 - 1)に更新回数 + 1を掛けたものとなるため，一度でも更新された値の組についてだけ更新回数を疎に保持します．
+ * ネットワークの生成に値の組の列挙が不要なので，ドメインが大きな問題でもすぐに探索を開始でき，3項以上の制約にも対応します．
+ * 活性化しているニューロンの値は常に変数に割り当てられた状態に保たれます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class ImplicitGENETNetwork extends GENETNetwork {
+
+	private final ProblemSnapshot ps_;
+	private final long[] conBases_;  // 制約ciの値の組の通し番号はconBases_[ci] + Σ(値のインデックス × 重み)
+	private final int[] posOffsets_;  // 制約ciのk番目の変数の重みはmuls_[posOffsets_[ci] + k]
+	private final long[] muls_;
+	private final int[] refreshed_;  // 制約ごとの更新されたことのある値の組の個数
+	private final CountMap counts_ = new CountMap();
+
+	/**
+	 * 問題と閾値を指定してネットワークを生成します．
+	 * 充足度が閾値以下となる値の組の間にコネクションがあるものとして扱い，重みの初期値は充足度 - 1となります．
+	 * クリスプな制約の充足度は0か1として扱われるため，閾値を0とすると違反する値の組の間にのみ重み-1のコネクションがあることになります．
+	 * 各クラスタの活性化しているニューロンは乱数によって選ばれ，その値が変数に割り当てられます．
+	 * @param p 問題
+	 * @param threshold 閾値
+	 * @param r 乱数
+	 */
+	public ImplicitGENETNetwork(final Problem p, final double threshold, final Random r) {
+		super(p, threshold);
+		ps_ = p.snapshot();
+		final int cs = ps_.constraintSize();
+		conBases_ = new long[cs];
+		posOffsets_ = new int[cs + 1];
+		for(int ci = 0; ci < cs; ++ci) posOffsets_[ci + 1] = posOffsets_[ci] + ps_.arityOf(ci);
+		muls_ = new long[posOffsets_[cs]];
+		long base = 0;
+		for(int ci = 0; ci < cs; ++ci) {
+			long span = 1;
+			for(int k = ps_.arityOf(ci) - 1; k >= 0; --k) {
+				muls_[posOffsets_[ci] + k] = span;
+				span = multiply(span, vars_[ps_.variableIndexOf(ci, k)].domain().size());
+			}
+			conBases_[ci] = base;
+			base += span;
+			if(base < 0) throw new IllegalArgumentException();  // 値の組の通し番号がlongに収まらない
+		}
+		refreshed_ = new int[cs];
+		randomize(r);
+	}
+
+	static private long multiply(final long a, final long b) {
+		final long m = a * b;
+		if(a != 0 && (m / a != b || m < 0)) throw new IllegalArgumentException();  // 値の組の通し番号がlongに収まらない
+		return m;
+	}
+
+	// 制約の現在の充足度を返す．クリスプな制約の充足度は0か1とする．
+	static private double degreeOf(final Constraint c) {
+		return c.isFuzzy() ? c.satisfactionDegree() : c.isSatisfied();
+	}
+
+	// 制約の，変数vにindex番目の値を割り当てたと仮定したときの充足度を返す．クリスプな制約の充足度は0か1とする．
+	static private double degreeWith(final Constraint c, final Variable v, final int index) {
+		return c.isFuzzy() ? c.satisfactionDegreeWith(v, index) : c.isSatisfiedWith(v, index);
+	}
+
+	// 制約ciの，活性化しているニューロンの値の組の通し番号を返す．
+	private long keyOf(final int ci) {
+		long key = conBases_[ci];
+		for(int k = 0, o = posOffsets_[ci], n = ps_.arityOf(ci); k < n; ++k) key += actives_[ps_.variableIndexOf(ci, k)] * muls_[o + k];
+		return key;
+	}
+
+	// 制約ciのスコープにおける変数xiの重みを返す．
+	private long mulOf(final int ci, final int xi) {
+		for(int k = 0, n = ps_.arityOf(ci); k < n; ++k) {
+			if(ps_.variableIndexOf(ci, k) == xi) return muls_[posOffsets_[ci] + k];
+		}
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 変数に隣接する制約の関係を，ドメインの各値について評価して求めます．
+	 */
+	@Override
+	protected void inputsOf(final int i, final double[] dest) {
+		final Variable x = vars_[i];
+		final int n = x.domain().size(), cur = actives_[i];
+		Arrays.fill(dest, 0, n, 0.0);
+		for(int k = 0, deg = ps_.degreeOf(i); k < deg; ++k) {
+			final int ci = ps_.constraintIndexOf(i, k);
+			final Constraint c = ps_.constraintAt(ci);
+			final boolean hasCounts = refreshed_[ci] != 0;  // 更新された値の組がなければ重みはすべて初期値
+			long key = 0, mul = 0;
+			if(hasCounts) {
+				mul = mulOf(ci, i);
+				key = keyOf(ci) - cur * mul;  // xiの値のインデックスを0とした値の組
+			}
+			for(int j = 0; j < n; ++j) {
+				final double d = degreeWith(c, x, j);
+				if(d > threshold_) continue;
+				final int count = hasCounts ? counts_.get(key + j * mul) : 0;
+				dest[j] += (d - 1.0) * (count + 1);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void activityChanged(final int i, final int from, final int to) {
+		final Variable x = vars_[i];
+		x.assign(x.domain().at(to));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void activitiesReset() {
+		applyToVariables();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 値の組の更新回数だけが記録されます．
+	 */
+	@Override
+	public void refreshWeights() {
+		for(int ci = 0, cs = ps_.constraintSize(); ci < cs; ++ci) {
+			if(degreeOf(ps_.constraintAt(ci)) > threshold_) continue;
+			if(counts_.increment(keyOf(ci)) == 1) ++refreshed_[ci];
+		}
+	}
+
+	/**
+	 * 一度でも重みが更新された値の組の個数を返します．
+	 * @return 値の組の個数
+	 */
+	public int refreshedSize() {
+		return counts_.size();
+	}
+
+	// 値の組の通し番号から更新回数への写像(オープンアドレス法)．
+	static private class CountMap {
+
+		private long[] keys_ = new long[16];
+		private int[] vals_ = new int[16];
+		private int size_ = 0;
+
+		public CountMap() {
+			Arrays.fill(keys_, -1);
+		}
+
+		private int slotOf(final long[] keys, final long key) {
+			final int mask = keys.length - 1;
+			int h = (int)(key ^ (key >>> 32)) * 0x9E3779B9;
+			int i = (h ^ (h >>> 16)) & mask;
+			while(keys[i] != -1 && keys[i] != key) i = (i + 1) & mask;
+			return i;
+		}
+
+		public int get(final long key) {
+			final int i = slotOf(keys_, key);
+			return (keys_[i] == key) ? vals_[i] : 0;
+		}
+
+		public int increment(final long key) {
+			int i = slotOf(keys_, key);
+			if(keys_[i] != key) {
+				if((size_ + 1) * 2 > keys_.length) {
+					rehash();
+					i = slotOf(keys_, key);
+				}
+				keys_[i] = key;
+				++size_;
+			}
+			return ++vals_[i];
+		}
+
+		private void rehash() {
+			final long[] oks = keys_;
+			final int[] ovs = vals_;
+			keys_ = new long[oks.length * 2];
+			vals_ = new int[oks.length * 2];
+			Arrays.fill(keys_, -1);
+			for(int j = 0; j < oks.length; ++j) {
+				if(oks[j] == -1) continue;
+				final int i = slotOf(keys_, oks[j]);
+				keys_[i] = oks[j];
+				vals_[i] = ovs[j];
+			}
+		}
+
+		public int size() {
+			return size_;
+		}
+
+	}
+
+}
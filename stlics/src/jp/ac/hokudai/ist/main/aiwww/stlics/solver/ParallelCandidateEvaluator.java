@@ -0,0 +1,143 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
+
+/**
+ * 変数と値の組(割り当ての候補)の評価を，フォーク・ジョインによって並列に行うクラスです．
+ * 評価は変数の値を変更せずに行う必要があり(Constraint#isSatisfiedWith，Constraint#satisfactionDegreeWithなど)，
+ * 評価の間，割り当ては変更されません．
+ * 候補の数が少ない場合は，呼び出したスレッドでそのまま評価します．
+ * 評価の間はスレッド間で共有される下限値を持ち，これを使って評価の途中で候補を枝刈りできます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class ParallelCandidateEvaluator {
+
+	/**
+	 * 割り当ての候補を評価するインターフェースです．
+	 */
+	static public interface Scorer {
+
+		/**
+		 * 変数にそのドメインのindex番目の値を割り当てたと仮定したときの評価値を返します．
+		 * 複数のスレッドから同時に呼び出されます．
+		 * @param position 評価する変数の配列における変数の位置
+		 * @param index 変数のドメインにおける値のインデックス
+		 * @return 評価値．候補としないならDouble.NaN
+		 */
+		double score(final int position, final int index);
+
+	}
+
+	static private final int SEQUENTIAL_THRESHOLD = 32;  // これ以下の個数の候補は分割せずに評価する
+
+	private ForkJoinPool pool_;
+	private final int parallelism_;
+	private int[] offsets_ = new int[0];
+	private double[] scores_ = new double[0];
+	private final AtomicLong bound_ = new AtomicLong();  // 下限値(doubleのビット表現)
+
+	/**
+	 * 利用可能なプロセッサの数を並列度として，評価器を生成します．
+	 */
+	public ParallelCandidateEvaluator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * 並列度を指定して評価器を生成します．
+	 * @param parallelism 並列度
+	 */
+	public ParallelCandidateEvaluator(final int parallelism) {
+		parallelism_ = parallelism;
+	}
+
+	/**
+	 * 下限値を指定して，変数の配列についてすべての値を評価します．
+	 * 結果の配列は次の呼び出しで再利用されます．
+	 * @param vars 変数の配列
+	 * @param s 評価を行うオブジェクト
+	 * @param bound 下限値の初期値
+	 * @return 評価値の配列．position番目の変数のindex番目の値の評価値はoffsetOf(position) + index番目の要素
+	 */
+	public double[] evaluate(final Variable[] vars, final Scorer s, final double bound) {
+		bound_.set(Double.doubleToLongBits(bound));
+		if(offsets_.length < vars.length + 1) offsets_ = new int[vars.length + 1];
+		for(int i = 0; i < vars.length; ++i) offsets_[i + 1] = offsets_[i] + vars[i].domain().size();
+		final int size = offsets_[vars.length];
+		if(scores_.length < size) scores_ = new double[size];
+
+		final Task t = new Task(s, 0, size);
+		if(size <= SEQUENTIAL_THRESHOLD || parallelism_ <= 1) {
+			t.compute();
+		} else {
+			if(pool_ == null) pool_ = new ForkJoinPool(parallelism_);
+			pool_.invoke(t);
+		}
+		return scores_;
+	}
+
+	/**
+	 * 評価中の下限値を返します．
+	 * 他のスレッドによる更新が反映されていない場合がありますが，返される値が実際の下限値を上回ることはありません．
+	 * @return 下限値
+	 */
+	public double bound() {
+		return Double.longBitsToDouble(bound_.get());
+	}
+
+	/**
+	 * 評価中の下限値を，指定した値が大きい場合に引き上げます．
+	 * @param value 値
+	 */
+	public void raiseBound(final double value) {
+		while(true) {
+			final long cur = bound_.get();
+			if(value <= Double.longBitsToDouble(cur)) return;
+			if(bound_.compareAndSet(cur, Double.doubleToLongBits(value))) return;
+		}
+	}
+
+	/**
+	 * 直前に評価した変数の配列において，position番目の変数の評価値の開始位置を返します．
+	 * @param position 変数の位置
+	 * @return 評価値の配列における開始位置
+	 */
+	public int offsetOf(final int position) {
+		return offsets_[position];
+	}
+
+	// 通し番号が[from, to)の候補を評価するタスク．
+	private class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Scorer scorer_;
+		private final int from_, to_;
+
+		public Task(final Scorer s, final int from, final int to) {
+			scorer_ = s;
+			from_ = from;
+			to_ = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to_ - from_ <= SEQUENTIAL_THRESHOLD) {
+				int p = 0;
+				for(int k = from_; k < to_; ++k) {
+					while(offsets_[p + 1] <= k) ++p;
+					scores_[k] = scorer_.score(p, k - offsets_[p]);
+				}
+				return;
+			}
+			final int mid = (from_ + to_) >>> 1;
+			invokeAll(new Task(scorer_, from_, mid), new Task(scorer_, mid, to_));
+		}
+
+	}
+
+}
@@ -0,0 +1,230 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.Callable;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.CancelableSolver;
+
+/**
+ * 複数のソルバを並行して動かし，最も良い解を採用するソルバです(ポートフォリオ)．
+ * 各ソルバは問題の複製に対してそれぞれのスレッドで動作するため，元の問題は最後に採用された解が割り当てられるまで変更されません．
+ * 目標の割合(クリスプ)もしくは充足度(ファジィ)に到達したソルバが現れた時点で，他のソルバの終了を待たずにその解を採用します．
+ * 目標を設定しなければ，各ソルバ自身の目標により成功したソルバが現れた時点で同様に採用します．
+ * 並行して動かすため，DebugSolver.debugはfalseにしておくことを勧めます．
+ * CancelableSolverでないソルバは途中で止められないため，採用が決まった後も終了するまでスレッドを使い続けることがあります．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class PortfolioSolver extends DebugSolver implements Solver, CancelableSolver {
+
+	/**
+	 * ポートフォリオを構成するソルバを生成するインタフェースです．
+	 */
+	static public interface Factory {
+
+		/**
+		 * ソルバを生成します．
+		 * @param p ソルバが対象とする問題(元の問題の複製)．元の問題がクリスプ制約充足問題ならばCrispProblemです．
+		 * @param index ポートフォリオにおけるソルバの番号(0～ソルバの個数-1)
+		 * @return ソルバ
+		 */
+		Solver create(final Problem p, final int index);
+
+	}
+
+	private final Problem pro_;
+	private final List<Factory> factories_;
+
+	private int iterLimit_ = -1;
+	private int timeLimit_ = -1;
+	private double targetRate_ = UNSPECIFIED;
+
+	private volatile boolean canceled_ = false;
+	private volatile Solver[] solvers_ = null;  // 実行中のソルバ
+
+	/**
+	 * 問題と，ソルバを生成するファクトリの並びを指定して，ソルバを生成します．
+	 * ファクトリ一つにつき一つのソルバが生成されます．
+	 * @param p 制約充足問題
+	 * @param factories ファクトリ
+	 */
+	public PortfolioSolver(final Problem p, final Factory... factories) {
+		pro_ = p;
+		factories_ = new ArrayList<>(Arrays.asList(factories));
+	}
+
+	/**
+	 * 問題と，ソルバの個数，ソルバを生成するファクトリを指定して，ソルバを生成します．
+	 * 同じ確率的ソルバを異なる乱数で複数動かす場合などに用います．
+	 * @param p 制約充足問題
+	 * @param size ソルバの個数
+	 * @param factory ファクトリ
+	 */
+	public PortfolioSolver(final Problem p, final int size, final Factory factory) {
+		pro_ = p;
+		factories_ = new ArrayList<>(java.util.Collections.nCopies(size, factory));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String name() {
+		return "Portfolio";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 設定は各ソルバに渡されます．
+	 */
+	@Override
+	public void setIterationLimit(final int count) {
+		iterLimit_ = count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 設定は各ソルバに渡されます．
+	 */
+	@Override
+	public void setTimeLimit(final int msec) {
+		timeLimit_ = msec;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 設定は各ソルバに渡され，ポートフォリオ全体の停止の条件にも用いられます．
+	 */
+	@Override
+	public void setTargetRate(final double rate) {
+		targetRate_ = rate;
+	}
+
+	// 解の良さを求める．クリスプ制約充足問題では充足した制約の割合，ファジィ制約充足問題では最悪充足度．
+	static private double quality(final Problem p) {
+		if(p instanceof CrispProblem) return ((CrispProblem)p).satisfiedConstraintRate();
+		return p.worstSatisfactionDegree();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean solve() {
+		final int n = factories_.size();
+		if(n == 0) return false;
+		final long time = System.currentTimeMillis();
+
+		final Problem[] copies = new Problem[n];
+		final Solver[] solvers = new Solver[n];
+		final List<Callable<Integer>> tasks = new ArrayList<>();
+		for(int i = 0; i < n; ++i) {
+			final int index = i;
+			copies[i] = pro_.copy();
+			final Solver s = solvers[i] = factories_.get(i).create(copies[i], i);
+			if(iterLimit_ != -1) s.setIterationLimit(iterLimit_);
+			if(timeLimit_ != -1) s.setTimeLimit(timeLimit_);
+			if(targetRate_ != UNSPECIFIED) s.setTargetRate(targetRate_);
+			tasks.add(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return s.solve() ? index : -(index + 1);
+				}
+			});
+		}
+		final ExecutorService es = Executors.newFixedThreadPool(n, new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "portfolio");
+				t.setDaemon(true);  // 打ち切られたソルバがVMの終了を妨げないようにする
+				return t;
+			}
+		});
+		solvers_ = solvers;
+		if(canceled_) cancelAll(solvers);  // 準備の間に中止が要求された
+		final CompletionService<Integer> cs = new ExecutorCompletionService<>(es);
+		final List<Future<Integer>> fs = new ArrayList<>();
+		for(Callable<Integer> t: tasks) fs.add(cs.submit(t));
+
+		int best = -1;
+		boolean bestResult = false;
+		double bestQuality = Double.NEGATIVE_INFINITY;
+		try {
+			for(int k = 0; k < n; ++k) {
+				final int r;
+				try {
+					r = cs.take().get();
+				} catch(ExecutionException e) {
+					if(debug) debugStream.println("A solver in the portfolio failed: " + e.getCause());
+					continue;
+				}
+				final int i = (r >= 0) ? r : -r - 1;
+				final double q = quality(copies[i]);
+				if(targetRate_ == UNSPECIFIED && r >= 0) {  // 目標がなければ成功したソルバの解を採用し，残りは待たない
+					best = i;
+					bestQuality = q;
+					bestResult = true;
+					break;
+				}
+				if(best == -1 || q > bestQuality) {
+					best = i;
+					bestQuality = q;
+					bestResult = r >= 0;
+				}
+				if(targetRate_ != UNSPECIFIED && targetRate_ <= q) break;  // 目標に到達したら残りは待たない
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			cancelAll(solvers);  // 割り込みに応じないソルバも止め，スレッドを残さないようにする
+			for(Future<Integer> f: fs) f.cancel(true);
+			es.shutdownNow();
+			solvers_ = null;
+			canceled_ = false;
+		}
+		if(best == -1) return false;
+
+		final Problem bp = copies[best];
+		for(int i = 0, m = pro_.variableSize(); i < m; ++i) {
+			final Variable v = pro_.variableAt(i), bv = bp.variableAt(i);
+			if(bv.isEmpty()) v.clear();
+			else v.assign(bv.value());
+		}
+		if(debug) {
+			debugStream.println("---- " + name() + " finished ----");
+			debugStream.println("Adopted: solver #" + best + " (" + bestQuality + ")");
+			debugStream.println("Elapsed Time: " + (System.currentTimeMillis() - time));
+		}
+		if(targetRate_ != UNSPECIFIED) return targetRate_ <= bestQuality;
+		return bestResult;
+	}
+
+	static private void cancelAll(final Solver[] solvers) {
+		for(Solver s: solvers) {
+			if(s instanceof CancelableSolver) ((CancelableSolver)s).cancel();  // 中止できないソルバはスレッドへの割り込みに任せる
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 実行中の各ソルバにも中止が要求されます．
+	 */
+	@Override
+	public void cancel() {
+		canceled_ = true;
+		final Solver[] ss = solvers_;
+		if(ss != null) cancelAll(ss);
+	}
+
+}
@@ -0,0 +1,19 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+/**
+ * ソルバの途中経過を受け取るリスナーのインタフェースです．
+ * ソルバを動かしているスレッドから呼び出されるため，時間のかかる処理をしてはいけません．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public interface ProgressListener {
+
+	/**
+	 * ソルバの途中経過が報告されたときに呼び出されます．
+	 * @param solver ソルバ
+	 * @param iteration 反復回数
+	 * @param quality 現在の割り当ての良さ．クリスプ制約充足問題では充足した制約の割合，ファジィ制約充足問題では最悪充足度．
+	 */
+	void progressed(final Solver solver, final int iteration, final double quality);
+
+}
@@ -0,0 +1,83 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+import java.util.Arrays;
+
+/**
+ * 枝刈りの履歴(トレイル)を保持するクラスです．
+ * 同じトレイルを共有するDomainPrunerでのhideをレベルごとに記録しておき，
+ * レベルを指定した復活を，すべての変数のドメインを走査することなく，そのレベルで消去された要素の数に比例する手間で行います．
+ * 要素を消去したレベルが後から変更された場合など，記録が古くなったものは復活の際に読み飛ばされます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class PruningTrail {
+
+	static private final int MIN_LEVEL = -1;  // 探索前の枝刈りに用いられる最小のレベル
+
+	private DomainPruner[][] pruners_ = new DomainPruner[0][];
+	private int[][] indices_ = new int[0][];
+	private int[] sizes_ = new int[0];
+
+	// DomainPruner#hideから呼び出される．
+	void push(final DomainPruner dp, final int index, final int level) {
+		final int l = level - MIN_LEVEL;
+		if(l < 0) throw new IllegalArgumentException();
+		if(l >= sizes_.length) grow(l + 1);
+		int s = sizes_[l];
+		if(s == indices_[l].length) {
+			final int n = Math.max(16, s * 2);
+			pruners_[l] = Arrays.copyOf(pruners_[l], n);
+			indices_[l] = Arrays.copyOf(indices_[l], n);
+		}
+		pruners_[l][s] = dp;
+		indices_[l][s] = index;
+		sizes_[l] = s + 1;
+	}
+
+	private void grow(final int levelSize) {
+		final int n = Math.max(levelSize, sizes_.length * 2);
+		final int o = sizes_.length;
+		pruners_ = Arrays.copyOf(pruners_, n);
+		indices_ = Arrays.copyOf(indices_, n);
+		sizes_ = Arrays.copyOf(sizes_, n);
+		for(int i = o; i < n; ++i) {
+			pruners_[i] = new DomainPruner[0];
+			indices_[i] = new int[0];
+		}
+	}
+
+	/**
+	 * レベルを指定して，このトレイルを共有するすべてのDomainPrunerで消去されていた値を復活します．
+	 * @param level レベル
+	 */
+	public void reveal(final int level) {
+		final int l = level - MIN_LEVEL;
+		if(l < 0 || l >= sizes_.length) return;
+		final DomainPruner[] ps = pruners_[l];
+		final int[] is = indices_[l];
+		for(int i = sizes_[l] - 1; i >= 0; --i) {
+			ps[i].unhide(is[i], level);
+			ps[i] = null;
+		}
+		sizes_[l] = 0;
+	}
+
+	/**
+	 * このトレイルを共有するすべてのDomainPrunerで消去されていた値を復活します．
+	 */
+	public void revealAll() {
+		for(int l = 0; l < sizes_.length; ++l) reveal(l + MIN_LEVEL);
+	}
+
+	/**
+	 * 記録を破棄します．
+	 * DomainPruner#revealAllなどで直接値を復活させた後に呼び出します．
+	 */
+	public void clear() {
+		for(int l = 0; l < sizes_.length; ++l) {
+			Arrays.fill(pruners_[l], 0, sizes_[l], null);
+			sizes_[l] = 0;
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+/**
+ * ソルバの探索に許された反復回数と時間を管理するクラスです．
+ * 探索の反復(ノード)ごとにisExhaustedを呼び出すと，反復回数を数え，制限に達したかどうかを返します．
+ * 時刻(System#nanoTime)は反復ごとには読まず，読む間隔を反復の速さに合わせて調整します(およそ1ミリ秒ごと，ただし多くとも1024回ごと)．
+ * 反復の速さが変わらなければ，制限時間を超えてから停止するまでの遅れはおよそ1ミリ秒です．
+ * 反復が急に遅くなった場合の遅れは，多くとも遅くなった反復1024回分の時間です．
+ * 途中経過を知らせる間隔を設定すると，同じ時刻の読み取りを使って，知らせる時期が来たかどうかも判断します．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class SearchBudget {
+
+	static private final long CHECK_INTERVAL = 1000000L;  // 時刻を読む間隔の目安(ナノ秒)
+	static private final int MAX_STRIDE = 1 << 10;
+
+	private int iterationLimit_ = Integer.MAX_VALUE;
+	private boolean timeLimited_ = false;
+	private long endTime_ = 0;  // ナノ秒
+	private int iterationCount_ = 0;
+	private boolean exhausted_ = false;
+
+	private int stride_ = 1;  // 時刻を読む間隔(反復の回数)
+	private int countdown_ = 1;  // 次に時刻を読むまでの反復の回数
+	private long lastTime_ = 0;
+
+	private long progressInterval_ = -1;  // ナノ秒，-1は知らせないことを表す
+	private long nextProgressTime_ = 0;
+	private boolean progressDue_ = false;
+
+	/**
+	 * 途中経過を知らせる間隔を設定します．startで探索を始めても設定は変わりません．
+	 * @param msec 間隔(ミリ秒)．-1は知らせないことを表す．
+	 */
+	public void setProgressInterval(final int msec) {
+		progressInterval_ = (msec == -1) ? -1 : msec * 1000000L;
+	}
+
+	/**
+	 * 制限を指定して探索を始めます．反復回数は0に戻ります．
+	 * @param iterationLimit 反復回数の制限．Integer.MAX_VALUEは制限なしを表す．
+	 * @param timeLimit 時間の制限(ミリ秒)．-1は制限なしを表す．
+	 */
+	public void start(final int iterationLimit, final int timeLimit) {
+		iterationLimit_ = iterationLimit;
+		iterationCount_ = 0;
+		exhausted_ = false;
+		stride_ = 1;
+		countdown_ = 1;
+		timeLimited_ = (timeLimit != -1);
+		progressDue_ = false;
+		if(timeLimited_ || progressInterval_ != -1) lastTime_ = System.nanoTime();
+		if(timeLimited_) endTime_ = lastTime_ + timeLimit * 1000000L;
+		if(progressInterval_ != -1) nextProgressTime_ = lastTime_ + progressInterval_;
+	}
+
+	/**
+	 * 反復を一回数え，反復回数か時間の制限に達したかどうかを返します．
+	 * 一度制限に達すると，以後は常にtrueを返します．
+	 * @return 制限に達したならtrue
+	 */
+	public boolean isExhausted() {
+		if(iterationLimit_ < iterationCount_++ || exhausted_) return true;
+		if(--countdown_ > 0) return false;
+		return checkTime();
+	}
+
+	private boolean checkTime() {
+		if(!timeLimited_ && progressInterval_ == -1) {  // 時間の制限も途中経過もなければ時刻を読まない
+			countdown_ = Integer.MAX_VALUE;
+			return false;
+		}
+		final long now = System.nanoTime();
+		if(timeLimited_ && now - endTime_ > 0) {  // nanoTimeは差で比べる
+			exhausted_ = true;
+			return true;
+		}
+		if(progressInterval_ != -1 && now - nextProgressTime_ >= 0) {
+			progressDue_ = true;
+			nextProgressTime_ = now + progressInterval_;
+		}
+		final long elapsed = now - lastTime_;
+		if(elapsed < CHECK_INTERVAL / 2) {  // 反復が速ければ間隔を広げ(一度に2倍まで)，遅ければ速さに合わせて狭める
+			if(stride_ < MAX_STRIDE) stride_ <<= 1;
+		} else if(elapsed > CHECK_INTERVAL * 2) {
+			stride_ = (int)Math.max(1, stride_ * CHECK_INTERVAL / elapsed);
+		}
+		lastTime_ = now;
+		countdown_ = stride_;
+		return false;
+	}
+
+	/**
+	 * 途中経過を知らせる間隔を返します．
+	 * @return 間隔(ミリ秒)．-1は知らせないことを表す．
+	 */
+	public int progressInterval() {
+		return (progressInterval_ == -1) ? -1 : (int)(progressInterval_ / 1000000L);
+	}
+
+	/**
+	 * 途中経過を知らせる時期が来ていればtrueを返し，次の時期まではfalseを返すようにします．
+	 * 時刻は読まず，isExhaustedが時刻を読んだときに判断した結果を返します．
+	 * @return 知らせる時期が来ていればtrue
+	 */
+	public boolean pollProgress() {
+		if(!progressDue_) return false;
+		progressDue_ = false;
+		return true;
+	}
+
+	/**
+	 * 探索を始めてからの反復回数を返します．
+	 * @return 反復回数
+	 */
+	public int iterationCount() {
+		return iterationCount_;
+	}
+
+}
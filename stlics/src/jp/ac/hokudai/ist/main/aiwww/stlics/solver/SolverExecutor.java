@@ -0,0 +1,205 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.CancelableSolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
+
+/**
+ * ソルバを別のスレッドで動かし，結果をFutureとして返すクラスです．
+ * Futureの値は，ソルバが動いている間に見つかった最も良い割り当てです．
+ * ソルバが動いている間にSolverFuture#stopを呼び出すと，ソルバがCancelableSolverならば中止が要求され(CancelableSolver#cancel)，
+ * ソルバは探索の区切りで停止してスレッドを手放し，Futureはそれまでの最も良い割り当てで完了します．
+ * Futureを取り消した場合も同様にソルバは停止しますが，値は得られません．
+ * 動かす前や終わった後に取り消しても，ソルバには中止が要求されません．
+ * 一つのソルバを同時に複数のスレッドで動かしてはいけません．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class SolverExecutor {
+
+	/**
+	 * 別のスレッドで動かしているソルバの結果を表すFutureです．
+	 */
+	static public interface SolverFuture extends Future<AssignmentList> {
+
+		/**
+		 * ソルバを止め，Futureをそれまでに見つかった最も良い割り当てで完了させます．
+		 * cancelと違って，getで割り当てを受け取れます．ソルバを動かす前に呼び出すと，ソルバを動かさずに問題の現在の割り当てで完了します．
+		 * ソルバがCancelableSolverでなければ，ソルバが自ら停止するまで完了しません．
+		 */
+		void stop();
+
+	}
+
+	// 途中経過で報告された割り当てのうち，最も良いものを保持するリスナー
+	static private class Incumbent implements ProgressListener {
+
+		private final Problem pro_;
+		private AssignmentList best_ = null;
+		private double bestQuality_ = Double.NEGATIVE_INFINITY;
+
+		public Incumbent(final Problem p) {
+			pro_ = p;
+		}
+
+		@Override
+		public void progressed(final Solver solver, final int iteration, final double quality) {
+			offer(quality);
+		}
+
+		// 問題の現在の割り当てが，すべての変数に値を持ち，これまでより良ければ保持する．
+		void offer(final double quality) {
+			if(pro_.emptyVariableSize() > 0 || quality <= bestQuality_) return;
+			best_ = new AssignmentList(pro_);
+			bestQuality_ = quality;
+		}
+
+		AssignmentList best() {
+			return best_;
+		}
+
+	}
+
+	// 割り当ての良さを求める．クリスプ制約充足問題では充足した制約の割合，ファジィ制約充足問題では最悪充足度．
+	static private double quality(final Problem p) {
+		if(p instanceof CrispProblem) return ((CrispProblem)p).satisfiedConstraintRate();
+		return p.worstSatisfactionDegree();
+	}
+
+	// ソルバを動かし，最も良い割り当てを返す処理
+	static private class SolverCall implements Callable<AssignmentList> {
+
+		private final Solver solver_;
+		private final Problem pro_;
+		private SolverTask task_;
+
+		public SolverCall(final Solver s, final Problem p) {
+			solver_ = s;
+			pro_ = p;
+		}
+
+		@Override
+		public AssignmentList call() {
+			if(!task_.begin()) return new AssignmentList(pro_);  // 動かす前に止められた(取り消されたなら値は使われない)
+			final Incumbent inc = new Incumbent(pro_);
+			if(solver_ instanceof AbstractCrispSolver) ((AbstractCrispSolver)solver_).addProgressListener(inc);
+			else if(solver_ instanceof AbstractFuzzySolver) ((AbstractFuzzySolver)solver_).addProgressListener(inc);
+			try {
+				solver_.solve();
+			} finally {
+				task_.end();  // 割り当てを複製している間の取り消しはソルバに伝えない
+				if(solver_ instanceof AbstractCrispSolver) ((AbstractCrispSolver)solver_).removeProgressListener(inc);
+				else if(solver_ instanceof AbstractFuzzySolver) ((AbstractFuzzySolver)solver_).removeProgressListener(inc);
+			}
+			inc.offer(quality(pro_));  // 停止したときの割り当ても候補にする
+			return (inc.best() != null) ? inc.best() : new AssignmentList(pro_);
+		}
+
+	}
+
+	// ソルバが動いている間に取り消されたか止められたときだけソルバへ中止を要求するタスク
+	// 待っている間や終わった後の取り消しを伝えると，ソルバの中止の要求が残って次のsolveが即座に失敗するため伝えない
+	static private class SolverTask extends FutureTask<AssignmentList> implements SolverFuture {
+
+		private final Solver solver_;
+		private boolean running_ = false;  // thisで同期する
+		private boolean stopped_ = false;  // thisで同期する
+
+		public SolverTask(final Solver s, final SolverCall c) {
+			super(c);
+			solver_ = s;
+			c.task_ = this;
+		}
+
+		// ソルバを動かし始めてよければtrueを返す．
+		synchronized boolean begin() {
+			if(isCancelled() || stopped_) return false;
+			running_ = true;
+			return true;
+		}
+
+		synchronized void end() {
+			running_ = false;
+		}
+
+		private void cancelSolver() {
+			if(running_ && solver_ instanceof CancelableSolver) ((CancelableSolver)solver_).cancel();
+		}
+
+		@Override
+		public synchronized boolean cancel(final boolean mayInterruptIfRunning) {
+			final boolean res = super.cancel(mayInterruptIfRunning);
+			if(res) cancelSolver();
+			return res;
+		}
+
+		@Override
+		public synchronized void stop() {
+			if(stopped_ || isDone()) return;
+			stopped_ = true;
+			cancelSolver();
+		}
+
+	}
+
+	private final ExecutorService executor_;
+	private final boolean ownsExecutor_;
+
+	/**
+	 * ソルバを動かすスレッドを必要に応じて生成するエグゼキュータを生成します．
+	 * スレッドはデーモン・スレッドで，しばらく使われないと破棄されます．
+	 */
+	public SolverExecutor() {
+		executor_ = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "solver");
+				t.setDaemon(true);  // 動いているソルバがVMの終了を妨げないようにする
+				return t;
+			}
+		});
+		ownsExecutor_ = true;
+	}
+
+	/**
+	 * ソルバを動かすExecutorServiceを指定してエグゼキュータを生成します．
+	 * 指定したExecutorServiceはshutdownでは終了されません．
+	 * @param es ExecutorService
+	 */
+	public SolverExecutor(final ExecutorService es) {
+		executor_ = es;
+		ownsExecutor_ = false;
+	}
+
+	/**
+	 * ソルバを別のスレッドで動かします．
+	 * 返されるFutureの値は，すべての変数に値が割り当てられた割り当てのうち最も良いもの(ソルバが成功したかどうかによらない)です．
+	 * 候補はソルバが途中経過を報告した時点(AbstractCrispSolver#setProgressInterval，AbstractFuzzySolver#setProgressInterval)と停止した時点の割り当てで，
+	 * 候補がなければ停止したときの割り当てです．問題の割り当ては停止したときのままなので，必要ならばAssignmentList#applyで戻してください．
+	 * 途中経過はAbstractCrispSolver#addProgressListener，AbstractFuzzySolver#addProgressListenerで受け取れます．
+	 * @param s ソルバ
+	 * @param p ソルバが対象とする制約充足問題
+	 * @return 結果を表すFuture
+	 */
+	public SolverFuture solveAsync(final Solver s, final Problem p) {
+		final SolverTask t = new SolverTask(s, new SolverCall(s, p));
+		executor_.execute(t);
+		return t;
+	}
+
+	/**
+	 * エグゼキュータを終了します．実行中のソルバには中止が要求されないので，必要ならば先にFutureを止めるか取り消してください．
+	 * 生成時にExecutorServiceを指定した場合は何もしません．
+	 */
+	public void shutdown() {
+		if(ownsExecutor_) executor_.shutdown();
+	}
+
+}
@@ -0,0 +1,169 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver;
+
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CheckCounter;
+
+/**
+ * ソルバの動作を数えた計測値を保持するクラスです．
+ * AbstractCrispSolver#setMetrics，AbstractFuzzySolver#setMetricsで設定すると，ソルバはsolveのたびに計測値を加算します．
+ * 設定しなければソルバは数えないため，計測の負担はほとんどありません．
+ * 制約チェックの回数は，CheckCounterで関係を包んだ問題を解かせ，そのCheckCounterをsetCheckCounterで設定すると数えられます．
+ * 同期をとらないため，一つの計測値を複数のソルバで同時に使ってはいけません．また，値はsolveが終わった後に読んでください．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class SolverMetrics {
+
+	/**
+	 * 計測値の種類です．
+	 */
+	static public enum Counter {
+
+		/**
+		 * 探索のノード(系統的なソルバ)もしくは反復(確率的なソルバ)の数です．
+		 */
+		NODE,
+
+		/**
+		 * 制約チェック(関係の評価)の回数です．setCheckCounterで設定したCheckCounterから求めます．
+		 */
+		CONSTRAINT_CHECK,
+
+		/**
+		 * ドメインの値を消去した(DomainPruner#hide)回数です．
+		 */
+		PRUNE,
+
+		/**
+		 * 変数の値を変更した回数です(局所探索)．
+		 */
+		MOVE,
+
+		/**
+		 * 制約の重みを更新した回数です(ブレイクアウト法，GENET)．
+		 */
+		WEIGHT_UPDATE,
+
+		/**
+		 * SRS 3でリペアを試みた回数です．
+		 */
+		REPAIR,
+
+		/**
+		 * SRS 3で探索木を広げた回数です．
+		 */
+		SPREAD,
+
+		/**
+		 * SRS 3で探索木を縮めた回数です．
+		 */
+		SHRINK
+
+	}
+
+	static private final Counter[] COUNTERS = Counter.values();
+
+	private final long[] counts_ = new long[COUNTERS.length];
+	private int solveCount_ = 0;
+	private long elapsedTime_ = 0;  // ナノ秒
+	private CheckCounter checkCounter_ = null;
+	private long startTime_ = 0;
+	private long startCheckCount_ = 0;
+
+	/**
+	 * 制約チェックの回数を数えるCheckCounterを設定します．
+	 * solveの間に増えた回数がCONSTRAINT_CHECKとして加算されます．
+	 * @param c CheckCounter．nullなら数えない
+	 */
+	public void setCheckCounter(final CheckCounter c) {
+		checkCounter_ = c;
+	}
+
+	/**
+	 * 計測値を一つ増やします．
+	 * @param c 種類
+	 */
+	public void increment(final Counter c) {
+		++counts_[c.ordinal()];
+	}
+
+	/**
+	 * 計測値を加算します．
+	 * @param c 種類
+	 * @param n 加算する値
+	 */
+	public void add(final Counter c, final long n) {
+		counts_[c.ordinal()] += n;
+	}
+
+	// AbstractCrispSolver，AbstractFuzzySolverのsolveの始めに呼び出される．
+	void started() {
+		if(checkCounter_ != null) startCheckCount_ = checkCounter_.count();
+		startTime_ = System.nanoTime();
+	}
+
+	// AbstractCrispSolver，AbstractFuzzySolverのsolveの終わりに呼び出される．
+	void finished(final long nodes) {
+		elapsedTime_ += System.nanoTime() - startTime_;
+		counts_[Counter.NODE.ordinal()] += nodes;
+		if(checkCounter_ != null) counts_[Counter.CONSTRAINT_CHECK.ordinal()] += checkCounter_.count() - startCheckCount_;
+		++solveCount_;
+	}
+
+	/**
+	 * 計測値を返します．
+	 * @param c 種類
+	 * @return 計測値
+	 */
+	public long count(final Counter c) {
+		return counts_[c.ordinal()];
+	}
+
+	/**
+	 * 1秒あたりの計測値を返します．
+	 * @param c 種類
+	 * @return 1秒あたりの計測値．時間が計測されていなければ0
+	 */
+	public double rate(final Counter c) {
+		if(elapsedTime_ == 0) return 0.0;
+		return counts_[c.ordinal()] * 1.0E9 / elapsedTime_;
+	}
+
+	/**
+	 * solveが呼び出された回数を返します．
+	 * @return 回数
+	 */
+	public int solveCount() {
+		return solveCount_;
+	}
+
+	/**
+	 * solveにかかった時間の合計を返します．
+	 * @return 時間(ミリ秒)
+	 */
+	public double elapsedTime() {
+		return elapsedTime_ / 1.0E6;
+	}
+
+	/**
+	 * すべての計測値を0に戻します．
+	 */
+	public void clear() {
+		for(int i = 0; i < counts_.length; ++i) counts_[i] = 0;
+		solveCount_ = 0;
+		elapsedTime_ = 0;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("solves: ").append(solveCount_).append(", time: ").append(String.format("%.1fms", elapsedTime()));
+		for(Counter c: COUNTERS) {
+			final long n = counts_[c.ordinal()];
+			if(n == 0) continue;
+			sb.append(", ").append(c.name().toLowerCase()).append(": ").append(n);
+			sb.append(String.format(" (%.0f/s)", rate(c)));
+		}
+		return sb.toString();
+	}
+
+}
@@ -4,8 +4,10 @@ import java.util.*;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ProblemSnapshot;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractCrispSolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.StochasticSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.Assignment;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
@@ -19,10 +21,13 @@ import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
 public class Breakout extends AbstractCrispSolver implements StochasticSolver {
 
 	private final double[] weights_;
+	private Random rand_ = new Random();
+	private boolean useScoreTable_ = false;
+	private double[] scores_;  // 変数viがそのドメインのj番目の値をとったときの重み付き違反数．scores_[ps.domainOffsetOf(vi) + j]
+	private int[] stamps_;     // 違反変数の列挙で用いる変数ごとの印
+	private int stamp_;
 
-	private int iterationLimit_ = Integer.MAX_VALUE;
 	private int satisfiedSizeLimit_;
-	private int timeLimit_ = -1;
 
 	public Breakout(final CrispProblem p) {
 		super(p);
@@ -32,15 +37,17 @@ public class Breakout extends AbstractCrispSolver implements StochasticSolver {
 	}
 
 	private void findCandidates(final Variable[] violatingVariables, final AssignmentList candidates) {
+		final ProblemSnapshot ps = pro_.snapshot();
 		double maxDiff = 0.0;
 
 		for(Variable v: violatingVariables) {
 			final int v_val = v.value();  // 値を保存
-			final Constraint[] v_c = v.constraints();
+			final int vi = v.index(), deg = ps.degreeOf(vi);
 			final Domain v_d = v.domain();
 
 			double nowVio = 0.0;
-			for(Constraint c: v_c) {
+			for(int k = 0; k < deg; ++k) {
+				final Constraint c = ps.constraintOf(vi, k);
 				nowVio += (1 - c.isSatisfied()) * weights_[c.index()];
 			}
 			out: for(int i = 0; i < v_d.size(); ++i) {
@@ -48,7 +55,8 @@ public class Breakout extends AbstractCrispSolver implements StochasticSolver {
 				if(v_val == d) continue;
 				v.assign(d);
 				double diff = nowVio;
-				for(Constraint c: v_c) {
+				for(int k = 0; k < deg; ++k) {
+					final Constraint c = ps.constraintOf(vi, k);
 					diff -= (1 - c.isSatisfied()) * weights_[c.index()];
 					if(diff < maxDiff) continue out;  // これまでの改善幅よりも少なくなったら次の変数を試す
 				}
@@ -65,63 +73,193 @@ public class Breakout extends AbstractCrispSolver implements StochasticSolver {
 	}
 	
 	private Variable[] listViolatingVariables(final List<Constraint> violatingConstraints) {
-		final Set<Variable> vvs = new HashSet<>(pro_.variableSize());
+		if(stamps_ == null || stamps_.length != pro_.variableSize()) stamps_ = new int[pro_.variableSize()];
+		if(++stamp_ == 0) {  // 一周したら印を消す
+			Arrays.fill(stamps_, 0);
+			stamp_ = 1;
+		}
+		final List<Variable> vvs = new ArrayList<>();
 		for(int i = 0; i < violatingConstraints.size(); ++i) {
 			final Constraint c = violatingConstraints.get(i);
-			for(int j = 0; j < c.size(); ++j) vvs.add(c.at(j));
+			for(int j = 0; j < c.size(); ++j) {
+				final Variable v = c.at(j);
+				if(stamps_[v.index()] == stamp_) continue;
+				stamps_[v.index()] = stamp_;
+				vvs.add(v);
+			}
 		}
 		return vvs.toArray(new Variable[vvs.size()]);
 	}
 
+	// 得点表を使うモード --------
+
+	// 全変数の全値についての重み付き違反数を求める．
+	private void buildScoreTable() {
+		final ProblemSnapshot ps = pro_.snapshot();
+		scores_ = new double[ps.valueSize()];
+		for(int vi = 0; vi < ps.variableSize(); ++vi) {
+			final Variable v = ps.variableAt(vi);
+			final int o = ps.domainOffsetOf(vi), n = v.domain().size();
+			for(int k = 0, deg = ps.degreeOf(vi); k < deg; ++k) {
+				final Constraint c = ps.constraintOf(vi, k);
+				final double w = weights_[c.index()];
+				for(int j = 0; j < n; ++j) scores_[o + j] += (1 - c.isSatisfiedWith(v, j)) * w;
+			}
+		}
+	}
+
+	// 制約cの得点への寄与をfactor倍して，スコープのexclude以外の変数の得点に加える．
+	private void addContribution(final ProblemSnapshot ps, final Constraint c, final Variable exclude, final double factor) {
+		for(int p = 0, s = c.size(); p < s; ++p) {
+			final Variable y = c.at(p);
+			if(y == exclude) continue;
+			final int o = ps.domainOffsetOf(y.index());
+			for(int j = 0, n = y.domain().size(); j < n; ++j) scores_[o + j] += (1 - c.isSatisfiedWith(y, j)) * factor;
+		}
+	}
+
+	// 変数の値を変更し，隣接する変数の得点を更新する(変数自身の得点は自身の値に依存しないため変わらない)．
+	private void assignWithScore(final Variable x, final int value) {
+		final ProblemSnapshot ps = pro_.snapshot();
+		final int xi = x.index(), deg = ps.degreeOf(xi);
+		for(int k = 0; k < deg; ++k) {
+			final Constraint c = ps.constraintOf(xi, k);
+			addContribution(ps, c, x, -weights_[c.index()]);
+		}
+		x.assign(value);
+		for(int k = 0; k < deg; ++k) {
+			final Constraint c = ps.constraintOf(xi, k);
+			addContribution(ps, c, x, weights_[c.index()]);
+		}
+	}
+
+	// 得点表を走査して候補を求める．findCandidatesと同じ候補が得られる．
+	private void findCandidatesByScore(final Variable[] violatingVariables, final AssignmentList candidates) {
+		final ProblemSnapshot ps = pro_.snapshot();
+		double maxDiff = 0.0;
+
+		for(Variable v: violatingVariables) {
+			final Domain v_d = v.domain();
+			final int o = ps.domainOffsetOf(v.index()), cur = v_d.indexOf(v.value());
+			final double nowVio = scores_[o + cur];
+			for(int j = 0, n = v_d.size(); j < n; ++j) {
+				if(j == cur) continue;
+				final double diff = nowVio - scores_[o + j];
+				if(diff > maxDiff) {  // これまでよりも改善する割り当てが見つかった
+					maxDiff = diff;
+					candidates.clear();
+					candidates.add(v, v_d.at(j));
+				} else if(maxDiff != 0.0 && diff == maxDiff) {  // これまでと同等の改善が可能な割り当てが見つかった
+					candidates.add(v, v_d.at(j));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 制約の重みを設定します．
+	 * iterationStartedから他の探索の重みを取り込む際などに用います．
+	 * @param index 制約のインデックス
+	 * @param weight 重み
+	 */
+	protected void setWeight(final int index, final double weight) {
+		final double delta = weight - weights_[index];
+		weights_[index] = weight;
+		if(scores_ != null && delta != 0) addContribution(pro_.snapshot(), pro_.constraintAt(index), null, delta);
+	}
+
 	@Override
 	protected boolean exec() {
-		final long time = System.currentTimeMillis() + timeLimit_;
-		int iterationCount = 0;
+		budget_.start(iterLimit_, timeLimit_);
 
 		for(Variable v: pro_.variables()) {
 			if(v.isEmpty()) v.assign(v.domain().at(0));
 		}
 		
+		scores_ = null;
+		if(useScoreTable_) buildScoreTable();
+
 		final List<Constraint> vc = new ArrayList<>();
 		final AssignmentList candidates = new AssignmentList();
 		while(true) {
 			pro_.violatingConstraints(vc);
 			if(satisfiedSizeLimit_ <= pro_.constraintSize() - vc.size()) return true;  // 違反率が指定より改善されたら成功
-			if(iterationLimit_ < iterationCount++) return false;  // 規定回数繰り返したら失敗
-			if(timeLimit_ != -1 && time < System.currentTimeMillis()) return false;  // 制限時間を超えたら失敗
+			if(budget_.isExhausted()) return false;  // 規定回数繰り返したか，制限時間を超えたら失敗
+			if(isCanceled()) return false;  // 中止が要求されたら失敗
+			progress(budget_.iterationCount());
+			if(!iterationStarted(budget_.iterationCount(), weights_)) return false;  // フック呼び出し
 
 			if(debug) debugStream.println(vc.size() + " violations");
-			findCandidates(listViolatingVariables(vc), candidates);
+			if(scores_ != null) {
+				findCandidatesByScore(listViolatingVariables(vc), candidates);
+			} else {
+				findCandidates(listViolatingVariables(vc), candidates);
+			}
 			if(candidates.size() > 0) {
-				final Assignment e = candidates.arbitraryAssignment();
-				e.apply();
+				final Assignment e = candidates.arbitraryAssignment(rand_);
+				if(scores_ != null) {
+					assignWithScore(e.variable(), e.value());
+				} else {
+					e.apply();
+				}
 				candidates.clear();
+				count(SolverMetrics.Counter.MOVE);
 				if(debug) debugStream.println("\t" + e);
 			} else {
-				for(int i = 0; i < vc.size(); ++i) weights_[vc.get(i).index()]++;
+				for(int i = 0; i < vc.size(); ++i) {
+					final int ci = vc.get(i).index();
+					setWeight(ci, weights_[ci] + 1);
+				}
 				if(debug) debugStream.println("breakout");
+				count(SolverMetrics.Counter.WEIGHT_UPDATE);
 			}
 		}
 	}
 
+	/**
+	 * 反復の始めに呼び出されるフックです．
+	 * 制約の重みの配列(制約のインデックス順)が渡されます．他の探索と重みを交換するなど，重みを変更する場合はsetWeightを用います．
+	 * @param count これまでの反復の回数
+	 * @param weights 制約の重み
+	 * @return 探索を続けるならtrue，打ち切るならfalse
+	 */
+	protected boolean iterationStarted(final int count, final double[] weights) {return true;}
+
+	/**
+	 * 変数と値ごとの重み付き違反数の表を保持して，候補の選択を行うかどうかを設定します．
+	 * 有効にすると，値を変更した変数に隣接する変数の得点だけが更新され，候補の選択は表の走査となります．
+	 * 選ばれる候補は無効の場合と同じです．ドメインが大きく，違反している変数が多い問題で有効です．
+	 * デフォルトではfalseです．
+	 * @param flag 表を使うならtrue
+	 */
+	public void setUsingScoreTable(final boolean flag) {
+		useScoreTable_ = flag;
+	}
+
 	@Override
     public String name() {
         return "Breakout";
     }
 
-	@Override
-    public void setIterationLimit(final int count) {
-		iterationLimit_ = (count == -1) ? Integer.MAX_VALUE : count;
-	}
-
 	@Override
     public void setTargetRate(final double rate) {
 		satisfiedSizeLimit_ = (rate == -1) ? pro_.constraintSize() : (int)(pro_.constraintSize() * rate);
     }
 
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
-    public void setTimeLimit(final int msec) {
-		timeLimit_ = msec;
-    }
+	public void setSeed(final long seed) {
+		setRandom(new Random(seed));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setRandom(final Random r) {
+		rand_ = r;
+	}
 
 }
@@ -2,13 +2,18 @@ package jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp;
 
 import java.util.*;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ConstraintGraph;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ProblemSnapshot;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractCrispSolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.ParallelCandidateEvaluator;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.StochasticSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.Assignment;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
+import jp.ac.hokudai.ist.main.aiwww.stlics.util.IndexQueue;
 
 /**
  * SRSアルゴリズムをクリスプなCSP用に実装したクラスです．
@@ -54,41 +59,40 @@ public class CrispSRS3 extends AbstractCrispSolver implements StochasticSolver {
 
 	}
 
-	private final Set<TreeNode> closedList_ = new HashSet<>();
-	private final Set<TreeNode> openList_ = new LinkedHashSet<>();
+	private final BitSet closedList_;    // 制約のインデックスの集合
+	private final IndexQueue openList_;  // 制約のインデックスの待ち行列
+	private Random rand_ = new Random();
+	private ParallelCandidateEvaluator evaluator_;  // nullでなければ並列にリペアの候補を評価する
 	private final TreeNode[] nodes_;
-	private final Constraint[][] neighborConstraints_;  // キャッシュ
 
-	private int iterationLimit_ = Integer.MAX_VALUE;
 	private int satisfiedSizeLimit_ = -1;
-	private int timeLimit_ = -1;
 
 	public CrispSRS3(final CrispProblem p) {
 		super(p);
 		nodes_ = new TreeNode[pro_.constraintSize()];
-		neighborConstraints_ = new Constraint[pro_.constraintSize()][];
+		closedList_ = new BitSet(pro_.constraintSize());
+		openList_ = new IndexQueue(pro_.constraintSize());
 		final List<Constraint> cs = pro_.constraints();
 		for(int i = 0; i < cs.size(); ++i) {
 			nodes_[i] = new TreeNode(cs.get(i));
 		}
 	}
 
-	private boolean srs(final List<TreeNode> c_stars) {
-		final long time = System.currentTimeMillis() + timeLimit_;
-		int iterationCount = 0;
+	private boolean srs(final IndexQueue c_stars) {
+		budget_.start(iterLimit_, timeLimit_);
 
 		closedList_.clear();
 		openList_.clear();
-		openList_.addAll(c_stars);
+		for(int i = c_stars.first(); i != -1; i = c_stars.next(i)) openList_.add(i);
 		while(!c_stars.isEmpty() && !openList_.isEmpty()) {
 			if(satisfiedSizeLimit_ != -1 && satisfiedSizeLimit_ <= pro_.satisfiedConstraintSize()) return true;  // 違反率が指定より改善されたら成功
-			if(iterationLimit_ < iterationCount++) return false;  // 規定回数繰り返したら失敗
-			if(timeLimit_ != -1 && time < System.currentTimeMillis()) return false;  // 制限時間を超えたら失敗
+			if(budget_.isExhausted()) return false;  // 規定回数繰り返したか，制限時間を超えたら失敗
+			if(isCanceled()) return false;  // 中止が要求されたら失敗
+			progress(budget_.iterationCount());
 			
-			final TreeNode node = openList_.iterator().next();
-			openList_.remove(node);
+			final TreeNode node = nodes_[openList_.poll()];
 			if(repair(node.getObject())) {
-				if(!c_stars.remove(node)) {  // リペアしたノードがC*に含まれる場合(削除する)
+				if(!c_stars.remove(node.getObject().index())) {  // リペアしたノードがC*に含まれる場合(削除する)
 					if(node.parent() != null && repair(node.parent().getObject())) {  // 自分の改善が親の改善につながる場合
 						shrink(node, c_stars);
 					} else {
@@ -102,34 +106,29 @@ public class CrispSRS3 extends AbstractCrispSolver implements StochasticSolver {
 		return false;
 	}
 
-	private Constraint[] getNeighborConstraints(final Constraint c) {
-		final int index = c.index();
-		if(neighborConstraints_[index] == null) {
-			neighborConstraints_[index] = c.neighbors(new HashSet<Constraint>()).toArray(new Constraint[0]);
-		}
-		return neighborConstraints_[index];
-	}
-
 	private boolean repair(final Constraint c0) {
+		count(SolverMetrics.Counter.REPAIR);
+		if(evaluator_ != null) return repairInParallel(c0);
 		final AssignmentList candidates = new AssignmentList();
+		final ProblemSnapshot ps = pro_.snapshot();
 		double maxDiff = 0.0;
 
 		for(int j = 0; j < c0.size(); ++j) {
 			final Variable v = c0.at(j);
 			final int v_val = v.value();  // 値を保存
-			final Constraint[] v_c = v.constraints();
+			final int vi = v.index(), deg = ps.degreeOf(vi);
 			final Domain v_d = v.domain();
 
 			double nowVio = 0.0;
-			for(Constraint c: v_c) nowVio += (1 - c.isSatisfied());
+			for(int k = 0; k < deg; ++k) nowVio += (1 - ps.constraintOf(vi, k).isSatisfied());
 			out: for(int i = 0; i < v_d.size(); ++i) {
 				final int d = v_d.at(i);
 				if(v_val == d) continue;
 				v.assign(d);
 				if(c0.isSatisfied() != 1) continue;  // c0の改善が前提
 				double diff = nowVio;
-				for(Constraint n: v_c) {
-					diff -= (1 - n.isSatisfied());
+				for(int k = 0; k < deg; ++k) {
+					diff -= (1 - ps.constraintOf(vi, k).isSatisfied());
 					if(diff < maxDiff) continue out;  // これまでの改善幅よりも少なくなったら次の変数を試す
 				}
 				if(diff > maxDiff) {  // これまでよりも改善する割り当てが見つかった
@@ -143,7 +142,7 @@ public class CrispSRS3 extends AbstractCrispSolver implements StochasticSolver {
 			v.assign(v_val);  // 値を復元
 		}
 		if(candidates.size() > 0) {
-			final Assignment e = candidates.arbitraryAssignment();
+			final Assignment e = candidates.arbitraryAssignment(rand_);
 			e.apply();
 			if(debug) debugStream.println("\t" + e);
 			return true;
@@ -151,7 +150,54 @@ public class CrispSRS3 extends AbstractCrispSolver implements StochasticSolver {
 		return false;
 	}
 
-	private void shrink(final TreeNode node, final List<TreeNode> c_stars) {
+	// リペアの候補を並列に評価する(変数の値を変更せずに評価し，選ばれる候補は逐次の場合と同じ)．
+	private boolean repairInParallel(final Constraint c0) {
+		final ProblemSnapshot ps = pro_.snapshot();
+		final Variable[] vs = new Variable[c0.size()];
+		final double[] nowVios = new double[vs.length];
+		for(int j = 0; j < vs.length; ++j) {
+			vs[j] = c0.at(j);
+			final int vi = vs[j].index();
+			for(int k = 0, deg = ps.degreeOf(vi); k < deg; ++k) nowVios[j] += (1 - ps.constraintOf(vi, k).isSatisfied());
+		}
+		final double[] scores = evaluator_.evaluate(vs, new ParallelCandidateEvaluator.Scorer() {
+			@Override
+			public double score(final int position, final int index) {
+				final Variable v = vs[position];
+				if(v.value() == v.domain().at(index)) return Double.NaN;
+				if(c0.isSatisfiedWith(v, index) != 1) return Double.NaN;  // c0の改善が前提
+				final int vi = v.index();
+				double diff = nowVios[position];
+				for(int k = 0, deg = ps.degreeOf(vi); k < deg; ++k) {
+					diff -= (1 - ps.constraintOf(vi, k).isSatisfiedWith(v, index));
+					if(diff < evaluator_.bound()) return Double.NaN;  // これまでの改善幅よりも少なくなったら次の候補を試す
+				}
+				evaluator_.raiseBound(diff);
+				return diff;
+			}
+		}, 0.0);
+		double maxDiff = 0.0;
+		for(int j = 0; j < vs.length; ++j) {
+			for(int i = 0, o = evaluator_.offsetOf(j), n = vs[j].domain().size(); i < n; ++i) {
+				if(scores[o + i] > maxDiff) maxDiff = scores[o + i];  // NaNとの比較は常にfalse
+			}
+		}
+		if(maxDiff == 0.0) return false;  // 改善する割り当てがない
+		final AssignmentList candidates = new AssignmentList();
+		for(int j = 0; j < vs.length; ++j) {
+			final Variable v = vs[j];
+			for(int i = 0, o = evaluator_.offsetOf(j), n = v.domain().size(); i < n; ++i) {
+				if(scores[o + i] == maxDiff) candidates.add(v, v.domain().at(i));
+			}
+		}
+		final Assignment e = candidates.arbitraryAssignment(rand_);
+		e.apply();
+		if(debug) debugStream.println("\t" + e);
+		return true;
+	}
+
+	private void shrink(final TreeNode node, final IndexQueue c_stars) {
+		count(SolverMetrics.Counter.SHRINK);
 		final List<TreeNode> temp = new ArrayList<>();
 		TreeNode cur = node;
 		while(true) {  // 本来は再帰呼び出しであるが，ループに変換
@@ -160,22 +206,29 @@ public class CrispSRS3 extends AbstractCrispSolver implements StochasticSolver {
 			cur.getDescendants(temp);
 			cur.clear();
 
-			openList_.removeAll(temp);
-			closedList_.removeAll(temp);
-			if(c_stars.remove(cur)) break;
-			openList_.add(cur);
+			for(TreeNode tn: temp) {
+				final int i = tn.getObject().index();
+				openList_.remove(i);
+				closedList_.clear(i);
+			}
+			if(c_stars.remove(cur.getObject().index())) break;
+			openList_.add(cur.getObject().index());
 			if(cur.parent() != null && !repair(cur.parent().getObject())) break;
 		}
 	}
 
 	private void spread(final TreeNode node) {
-		closedList_.add(node);
-		for(Constraint c: getNeighborConstraints(node.getObject())) {
-			final TreeNode tnc = nodes_[c.index()];
-			if(!closedList_.contains(tnc) && !openList_.contains(tnc)) {  // OpenにもClosed含まれていない制約の場合
+		count(SolverMetrics.Counter.SPREAD);
+		final int ci = node.getObject().index();
+		closedList_.set(ci);
+		final ConstraintGraph cg = pro_.constraintGraph();
+		for(int k = 0, n = cg.constraintNeighborSizeOf(ci); k < n; ++k) {  // 乱数の種による再現性のため，隣接する制約は常に同じ順序でたどる
+			final int i = cg.constraintNeighborIndexOf(ci, k);
+			if(!closedList_.get(i) && !openList_.contains(i)) {  // OpenにもClosed含まれていない制約の場合
+				final TreeNode tnc = nodes_[i];
 				tnc.clear();  // 再利用故，前回子持ちの可能性があるため
 				node.add(tnc);
-				openList_.add(tnc);
+				openList_.add(i);
 			}
 		}
 	}
@@ -183,11 +236,8 @@ public class CrispSRS3 extends AbstractCrispSolver implements StochasticSolver {
 	@Override
 	protected boolean exec() {
 		final List<Constraint> vcs = pro_.violatingConstraints(new ArrayList<Constraint>());
-		final List<TreeNode> c_stars = new ArrayList<>();
-		for(Constraint c: vcs) {
-			final TreeNode tnc = nodes_[c.index()];
-			c_stars.add(tnc);
-		}
+		final IndexQueue c_stars = new IndexQueue(pro_.constraintSize());
+		for(Constraint c: vcs) c_stars.add(c.index());
 		if(srs(c_stars)) return true;
 		return c_stars.isEmpty();
 	}
@@ -198,18 +248,35 @@ public class CrispSRS3 extends AbstractCrispSolver implements StochasticSolver {
 	}
 
 	@Override
-	public void setIterationLimit(final int count) {
-		iterationLimit_ = (count == -1) ? Integer.MAX_VALUE : count;
+	public void setTargetRate(final double rate) {
+		satisfiedSizeLimit_ = (rate == -1) ? -1 : (int)(pro_.constraintSize() * rate);
+	}
+
+	/**
+	 * リペアの際に，ターゲットの制約の変数とその値の組を並列に評価するかどうかを設定します．
+	 * 評価は変数の値を変更せずに行われ，選ばれる候補は並列に評価しない場合と同じです．
+	 * 制約の変数が多い場合やドメインが大きな場合に有効です．
+	 * デフォルトではfalseです．
+	 * @param flag 並列に評価するならtrue
+	 */
+	public void setUsingParallelRepair(final boolean flag) {
+		evaluator_ = flag ? new ParallelCandidateEvaluator() : null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
-	public void setTargetRate(final double rate) {
-		satisfiedSizeLimit_ = (rate == -1) ? -1 : (int)(pro_.constraintSize() * rate);
+	public void setSeed(final long seed) {
+		setRandom(new Random(seed));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
-	public void setTimeLimit(final int msec) {
-		timeLimit_ = msec;
+	public void setRandom(final Random r) {
+		rand_ = r;
 	}
 
 }
@@ -1,13 +1,14 @@
 package jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp;
 
-import java.util.ArrayList;
-import java.util.List;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ConstraintGraph;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractCrispSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.DomainPruner;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.PruningTrail;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.SystematicSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.Assignment;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
@@ -25,61 +26,36 @@ public class ForwardChecking extends AbstractCrispSolver implements SystematicSo
 
 	private final Variable[] variables_;
 	private final AssignmentList assignmentList_ = new AssignmentList();
-	private Constraint[][][] relatedConstraints_;  // 2変数間の制約をキャッシュするテーブル
+	private final PruningTrail trail_ = new PruningTrail();
 	private boolean useMRV_ = false;
 
-	private int iterationLimit_ = Integer.MAX_VALUE;
-	private int timeLimit_ = -1;
-	private int iterationCount_;
-	private long time_;
 
 	public ForwardChecking(final CrispProblem p) {
 		super(p);
 		variables_ = pro_.variables().toArray(new Variable[pro_.variableSize()]);
 		for(Variable v: variables_) {
-			v.solverObject = new DomainPruner(v.domain().size());
+			v.solverObject = new DomainPruner(v.domain().size(), trail_);
 		}
-		initializeRelatedConstraintTable();
 	}
 
-	// 2変数間の制約をキャッシュするテーブルを初期化する．
-	private void initializeRelatedConstraintTable() {
-		final List<Constraint> temp = new ArrayList<>();
-		relatedConstraints_ = new Constraint[variables_.length][variables_.length][];
-		for(int j = 0; j < variables_.length; ++j) {
-			relatedConstraints_[j] = new Constraint[variables_.length][];
-			for(int i = 0; i < variables_.length; i++) {
-				if(i < j) {
-					pro_.constraintsBetween(variables_[i], variables_[j], temp);
-					relatedConstraints_[j][i] = temp.toArray(new Constraint[temp.size()]);
-				}
-			}
-		}
-	}
-
-	// 2変数間の制約をキャッシュするテーブルをから制約の配列を取得する．
-	private Constraint[] getConstraintsBetween(final int i, final int j) {
-		if(i < j) return relatedConstraints_[j][i];
-		return relatedConstraints_[i][j];
-	}
-
-	// 現在変数の割り当てから未来変数に割り当て可能かを調べる．
+	// 現在変数の割り当てから未来変数に割り当て可能かを調べる(制約グラフで隣接する変数だけを調べる)．
 	private boolean checkForward(final int currentLevel, final int currentIndex) {
-		for(Variable v_i: variables_) {
+		final ConstraintGraph cg = pro_.constraintGraph();
+		for(int j = 0, m = cg.neighborSizeOf(currentIndex); j < m; ++j) {
+			final Variable v_i = cg.neighborOf(currentIndex, j);
 			if(!v_i.isEmpty()) continue;  // 過去変数か現在変数だったら
 			final Domain d_i = v_i.domain();
 			final DomainPruner dc_i = (DomainPruner)v_i.solverObject;
-			final Constraint[] cs = getConstraintsBetween(currentIndex, v_i.index());
-			for(Constraint c: cs) {
+			for(int l = 0, s = cg.constraintSizeBetween(currentIndex, j); l < s; ++l) {
+				final Constraint c = cg.constraintBetween(currentIndex, j, l);
 				if(c.emptyVariableSize() != 1) continue;
 				for(int k = 0, n = d_i.size(); k < n; ++k) {
 					if(dc_i.isValueHidden(k)) continue;
-					v_i.assign(d_i.at(k));
-					if(c.isSatisfied() == 0) {  // 違反(未定義でもない)のときはhide
+					if(c.isSatisfiedWith(v_i, k) == 0) {  // 違反(未定義でもない)のときはhide
 						dc_i.hide(k, currentLevel);
+						count(SolverMetrics.Counter.PRUNE);
 					}
 				}
-				v_i.clear();
 				if(dc_i.isEmpty()) return false;  // 未来変数の1つのドメインが空になると，失敗．
 			}
 		}
@@ -106,8 +82,9 @@ public class ForwardChecking extends AbstractCrispSolver implements SystematicSo
 
 	// 探索を1変数ずつ行う．
 	private boolean branch(final int currentLevel) {
-		if(iterationLimit_ < iterationCount_++) return false;  // 規定回数繰り返したら失敗
-		if(timeLimit_ != -1 && time_ < System.currentTimeMillis()) return false;  // 制限時間を超えたら失敗
+		if(budget_.isExhausted()) return false;  // 規定回数繰り返したか，制限時間を超えたら失敗
+		if(isCanceled()) return false;  // 中止が要求されたら失敗
+		progress(budget_.iterationCount());
 
 		if(currentLevel == pro_.variableSize()) {
 			assignmentList_.set(pro_);
@@ -121,9 +98,7 @@ public class ForwardChecking extends AbstractCrispSolver implements SystematicSo
 			if(dc.isValueHidden(i)) continue;
 			vc.assign(d.at(i));
 			if(checkForward(currentLevel, vc_index) && branch(currentLevel + 1)) return true;
-			for(Variable v: variables_) {
-				((DomainPruner)v.solverObject).reveal(currentLevel);
-			}
+			trail_.reveal(currentLevel);
 		}
 		vc.clear();
 		return false;
@@ -132,15 +107,12 @@ public class ForwardChecking extends AbstractCrispSolver implements SystematicSo
 	// 探索を行う．
 	@Override
 	protected boolean exec() {
-		time_ = System.currentTimeMillis() + timeLimit_;
-		iterationCount_ = 0;
+		budget_.start(iterLimit_, timeLimit_);
 
 		pro_.clearAllVariables();
 		final boolean r = branch(0);
-		for(Assignment a: assignmentList_) {
-			a.apply();
-			((DomainPruner)a.variable().solverObject).revealAll();
-		}
+		for(Assignment a: assignmentList_) a.apply();
+		trail_.revealAll();
 		return r;
 	}
 
@@ -152,14 +124,6 @@ public class ForwardChecking extends AbstractCrispSolver implements SystematicSo
 		return "Forward checking";
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void setIterationLimit(final int count) {
-		iterationLimit_ = (count == -1) ? Integer.MAX_VALUE : count;
-	}
-
 	/**
 	 * このメソッドによる設定は無効です．
 	 */
@@ -168,14 +132,6 @@ public class ForwardChecking extends AbstractCrispSolver implements SystematicSo
 		// do nothing
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void setTimeLimit(final int msec) {
-		timeLimit_ = msec;
-	}
-
 	/**
 	 * 最小ドメイン優先ヒューリスティック(MRV)を使用するかどうかを指定します．
 	 * 問題によってはMRVの使用が処理時間を長くすることがあります．
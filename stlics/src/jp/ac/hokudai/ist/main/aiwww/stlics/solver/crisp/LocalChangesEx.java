@@ -2,6 +2,7 @@ package jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp;
 
 import java.util.*;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ConstraintGraph;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
@@ -17,11 +18,7 @@ import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
  */
 public class LocalChangesEx extends AbstractCrispSolver implements SystematicSolver {
 
-	private int iterationLimit_ = Integer.MAX_VALUE;
 	private int satisfiedSizeLimit_ = -1;
-	private int timeLimit_ = -1;
-	private int iterationCount_;
-	private long time_;
 	private boolean globalReturn_;
 	
 	public LocalChangesEx(final CrispProblem p) {
@@ -34,11 +31,12 @@ public class LocalChangesEx extends AbstractCrispSolver implements SystematicSol
 	}
 
 	private Set<Variable> createNewV3(final Set<Variable> V1_V2, final Variable v, final int val) {
+		final ConstraintGraph cg = pro_.constraintGraph();
 		final Set<Variable> newV3 = new HashSet<>();
 		final Set<Constraint> cs = new HashSet<>();
 		final List<Constraint> temp = new ArrayList<>();
 		for(Variable va: V1_V2) {
-			pro_.constraintsBetween(v, va, temp);
+			cg.constraintsBetween(v.index(), va.index(), temp);
 			cs.addAll(temp);
 		}
 		final int orgVal = v.value();  // 値を保存
@@ -55,10 +53,11 @@ public class LocalChangesEx extends AbstractCrispSolver implements SystematicSol
 	}
 
 	private boolean isConsistent(final Set<Variable> A, final Variable v, final int val) {
+		final ConstraintGraph cg = pro_.constraintGraph();
 		final Set<Constraint> cs = new HashSet<>();
 		final List<Constraint> temp = new ArrayList<>();
 		for(Variable va: A) {
-			pro_.constraintsBetween(v, va, temp);
+			cg.constraintsBetween(v.index(), va.index(), temp);
 			cs.addAll(temp);
 		}
 		final int orgVal = v.value();  // 値を保存
@@ -109,8 +108,9 @@ public class LocalChangesEx extends AbstractCrispSolver implements SystematicSol
 		final Iterator<Variable> it = V3.iterator();
 		while(it.hasNext()) {
 			if(satisfiedSizeLimit_ != -1 && satisfiedSizeLimit_ <= pro_.satisfiedConstraintSize()) {globalReturn_ = true; return true;}  // 違反率が指定より改善されたら成功
-			if(iterationLimit_ < iterationCount_++) {globalReturn_ = true; return false;}  // 規定回数繰り返したら失敗
-			if(timeLimit_ != -1 && time_ < System.currentTimeMillis()) {globalReturn_ = true; return false;}  // 制限時間を超えたら失敗
+			if(budget_.isExhausted()) {globalReturn_ = true; return false;}  // 規定回数繰り返したか，制限時間を超えたら失敗
+			if(isCanceled()) {globalReturn_ = true; return false;}  // 中止が要求されたら失敗
+			progress(budget_.iterationCount());
 
 			final Variable v = it.next();
 			final boolean ret = lcVariable(V1, V2, v);
@@ -123,8 +123,7 @@ public class LocalChangesEx extends AbstractCrispSolver implements SystematicSol
 
 	@Override
     protected boolean exec() {
-		time_ = System.currentTimeMillis() + timeLimit_;
-    	iterationCount_ = 0;
+		budget_.start(iterLimit_, timeLimit_);
     	globalReturn_ = false;
     	
     	final Set<Variable> unassigned = new HashSet<>();
@@ -138,19 +137,9 @@ public class LocalChangesEx extends AbstractCrispSolver implements SystematicSol
         return "Local change Ex";
     }
 
-	@Override
-    public void setIterationLimit(final int count) {
-		iterationLimit_ = (count == -1) ? Integer.MAX_VALUE : count;
-    }
-
 	@Override
     public void setTargetRate(final double rate) {
 		satisfiedSizeLimit_ = (rate == -1.0) ? -1 : (int)(pro_.constraintSize() * rate);
     }
 
-	@Override
-    public void setTimeLimit(final int msec) {
-		timeLimit_ = msec;
-    }
-
 }
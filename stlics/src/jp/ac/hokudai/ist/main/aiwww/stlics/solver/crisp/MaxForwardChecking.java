@@ -5,11 +5,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ConstraintGraph;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractCrispSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.DomainPruner;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.PruningTrail;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.SystematicSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.Assignment;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
@@ -25,30 +28,28 @@ public class MaxForwardChecking extends AbstractCrispSolver implements Systemati
 
 	private final Variable[] variables_;
 	private final AssignmentList assignmentList_ = new AssignmentList();
+	private final PruningTrail trail_ = new PruningTrail();
 	private int maxViolatedCount_;
 	private int violatedCount_;
 	private final Set<Constraint> checkedConstraints_ = new HashSet<>();
 	private List<Constraint> constraints_ = new ArrayList<>();  // 再利用用
 
-	private int iterationLimit_ = Integer.MAX_VALUE;
 	private int satisfiedSizeLimit_;
-	private int timeLimit_ = -1;
-	private int iterationCount_;
-	private long time_;
 
 	public MaxForwardChecking(final CrispProblem p) {
 		super(p);
 		maxViolatedCount_ = pro_.constraints().size();
 		variables_ = pro_.variables().toArray(new Variable[0]);
 		for(Variable v: variables_) {
-			v.solverObject = new DomainPruner(v.domain().size());
+			v.solverObject = new DomainPruner(v.domain().size(), trail_);
 		}
 		satisfiedSizeLimit_ = pro_.constraintSize();
 	}
 
 	private boolean branch(final int level, final int violatedCount) {
-		if(iterationLimit_ < iterationCount_++) return false;  // 規定回数繰り返したら失敗
-		if(timeLimit_ != -1 && time_ < System.currentTimeMillis()) return false;  // 制限時間を超えたら失敗
+		if(budget_.isExhausted()) return false;  // 規定回数繰り返したか，制限時間を超えたら失敗
+		if(isCanceled()) return false;  // 中止が要求されたら失敗
+		progress(budget_.iterationCount());
 
 		if(level == pro_.variableSize()) {
 			final int vcs = pro_.violatingConstraintSize();
@@ -70,9 +71,7 @@ public class MaxForwardChecking extends AbstractCrispSolver implements Systemati
 			violatedCount_ = violatedCount + getAdditionalViolationCount(level, vc);  // for max begin
 			if(violatedCount_ > maxViolatedCount_) continue;  // for max end
 			if(checkForward(level) && branch(level + 1, violatedCount_)) return true;
-			for(Variable v: variables_) {
-				((DomainPruner)v.solverObject).reveal(level);
-			}
+			trail_.reveal(level);
 		}
 		vc.clear();
 		return false;
@@ -80,10 +79,11 @@ public class MaxForwardChecking extends AbstractCrispSolver implements Systemati
 
 	// 現在変数の割り当てから未来変数に割り当て可能かを調べる．
 	private boolean checkForward(final int level) {
+		final ConstraintGraph cg = pro_.constraintGraph();
 		final Variable vc = variables_[level];
 		for(int i = level + 1; i < variables_.length; ++i) {
 			final Variable future = variables_[i];
-			pro_.constraintsBetween(vc, future, constraints_);
+			cg.constraintsBetween(vc.index(), future.index(), constraints_);
 			for(int j = 0; j < constraints_.size(); ++j) {
 				final Constraint c = constraints_.get(j);
 				if(c.emptyVariableSize() != 1) continue;
@@ -97,10 +97,11 @@ public class MaxForwardChecking extends AbstractCrispSolver implements Systemati
 
 	// 現在変数vcに値を設定したことによって増加した制約違反数を求める．
 	private int getAdditionalViolationCount(final int level, final Variable vc) {
+		final ConstraintGraph cg = pro_.constraintGraph();
 		int avc = 0;
 		checkedConstraints_.clear();  // 再利用
 		for(int i = 0; i < level; ++i) {
-			pro_.constraintsBetween(vc, variables_[i], constraints_);
+			cg.constraintsBetween(vc.index(), variables_[i].index(), constraints_);
 			for(int j = 0; j < constraints_.size(); ++j) {
 				final Constraint c = constraints_.get(j);
 				if(checkedConstraints_.contains(c)) continue;  // 多項制約では重複の恐れがあるため
@@ -118,10 +119,10 @@ public class MaxForwardChecking extends AbstractCrispSolver implements Systemati
 		final DomainPruner dc = (DomainPruner)v1.solverObject;
 		for(int i = 0; i < dom.size(); ++i) {
 			if(dc.isValueHidden(i)) continue;
-			v1.assign(dom.at(i));
-			final int s = c.isSatisfied();
+			final int s = c.isSatisfiedWith(v1, i);
 			if(s == 0 && violatedCount_ + 1 > maxViolatedCount_) {
 				dc.hide(i, level);
+				count(SolverMetrics.Counter.PRUNE);
 				deleted = true;
 			}
 		}
@@ -130,15 +131,12 @@ public class MaxForwardChecking extends AbstractCrispSolver implements Systemati
 
 	@Override
     protected boolean exec() {
-    	time_ = System.currentTimeMillis() + timeLimit_;
-    	iterationCount_ = 0;
+    	budget_.start(iterLimit_, timeLimit_);
     	
     	pro_.clearAllVariables();
     	final boolean r = branch(0, 0);
-    	for(Assignment a: assignmentList_) {
-    		a.apply();
-		((DomainPruner)a.variable().solverObject).revealAll();
-    	}
+    	for(Assignment a: assignmentList_) a.apply();
+    	trail_.revealAll();
     	return r;
     }
 
@@ -147,19 +145,9 @@ public class MaxForwardChecking extends AbstractCrispSolver implements Systemati
 		return "Forward checking for Max CSPs";
 	}
 
-	@Override
-	public void setIterationLimit(final int count) {
-		iterationLimit_ = (count == -1) ? Integer.MAX_VALUE : count;
-	}
-
 	@Override
 	public void setTargetRate(final double rate) {
 		satisfiedSizeLimit_ = (rate == -1) ? pro_.constraintSize() : (int)(pro_.constraintSize() * rate);
 	}
 
-	@Override
-    public void setTimeLimit(final int msec) {
-		timeLimit_ = msec;
-    }
-
 }
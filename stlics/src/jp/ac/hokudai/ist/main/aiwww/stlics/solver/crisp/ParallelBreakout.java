@@ -0,0 +1,222 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractCrispSolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.StochasticSolver;
+
+/**
+ * 複数のスレッドでブレイクアウト法を並行して実行するソルバです．
+ * 各スレッドは問題の複製に対して異なる初期割り当てと乱数から探索を行い，一定の反復ごとに制約の重みを共有します．
+ * 重みは要素ごとの最大値によって統合されるため，ある探索で充足の難しいことが分かった制約は他の探索でも重視されます．
+ * いずれかの探索が目標に到達した時点で他の探索は打ち切られ，その割り当てが元の問題に適用されます．
+ * 反復回数と時間の制限，目標は各探索に渡されます．目標を指定しなければ，Breakoutと同じくすべての制約の充足を目標とします．
+ * 途中経過は各探索のスレッドからそれぞれ報告され，反復回数と割り当ての良さはその探索のものです．
+ * 計測値(setMetrics)には全探索の反復回数と動作の回数の合計が加算されます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class ParallelBreakout extends AbstractCrispSolver implements StochasticSolver {
+
+	// 重みを共有するブレイクアウト法
+	private class Worker extends Breakout {
+
+		private final double[] local_;
+
+		public Worker(final CrispProblem p) {
+			super(p);
+			local_ = new double[p.constraintSize()];
+			budget_.setProgressInterval(ParallelBreakout.this.budget_.progressInterval());
+		}
+
+		@Override
+		protected void progress(final int iteration) {
+			if(budget_.pollProgress()) ParallelBreakout.this.fireProgress(iteration, pro_.satisfiedConstraintRate());
+		}
+
+		// 探索の反復回数を返す．
+		int iterationCount() {
+			return budget_.iterationCount();
+		}
+
+		@Override
+		protected boolean iterationStarted(final int count, final double[] weights) {
+			if(done_.get() || ParallelBreakout.this.isCanceled()) return false;  // 他の探索が目標に到達したか，中止が要求された
+			if(exchangeInterval_ > 0 && count > 0 && count % exchangeInterval_ == 0) exchange(weights);
+			return true;
+		}
+
+		// 共有の重みと要素ごとの最大値をとり，双方に反映する．
+		private void exchange(final double[] weights) {
+			synchronized(shared_) {
+				for(int i = 0; i < weights.length; ++i) {
+					if(shared_[i] < weights[i]) shared_[i] = weights[i];
+				}
+				System.arraycopy(shared_, 0, local_, 0, local_.length);
+			}
+			for(int i = 0; i < weights.length; ++i) {
+				if(weights[i] < local_[i]) setWeight(i, local_[i]);
+			}
+		}
+
+	}
+
+	private final int size_;
+	private final AtomicBoolean done_ = new AtomicBoolean();
+	private double[] shared_;
+	private int exchangeInterval_ = 100;
+	private boolean useScoreTable_ = false;
+	private Random rand_ = new Random();
+
+	/**
+	 * 利用可能なプロセッサの数だけ探索を並行させるソルバを生成します．
+	 * @param p クリスプ制約充足問題
+	 */
+	public ParallelBreakout(final CrispProblem p) {
+		this(p, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * 並行させる探索の数を指定してソルバを生成します．
+	 * @param p クリスプ制約充足問題
+	 * @param size 探索の数
+	 */
+	public ParallelBreakout(final CrispProblem p, final int size) {
+		super(p, "Parallel Breakout");
+		if(size < 1) throw new IllegalArgumentException();
+		size_ = size;
+		targetDeg_ = UNSPECIFIED;  // Breakoutと同じく，指定しなければすべての制約の充足を目標とする
+	}
+
+	/**
+	 * 制約の重みを共有する間隔を反復の回数で指定します．
+	 * 0以下を指定すると重みを共有せず，独立な探索を並行させます．
+	 * デフォルトは100です．
+	 * @param count 反復の回数
+	 */
+	public void setExchangeInterval(final int count) {
+		exchangeInterval_ = count;
+	}
+
+	/**
+	 * 各探索で得点表を使うかどうかを設定します．
+	 * @param flag 表を使うならtrue
+	 * @see Breakout#setUsingScoreTable(boolean)
+	 */
+	public void setUsingScoreTable(final boolean flag) {
+		useScoreTable_ = flag;
+	}
+
+	@Override
+	protected boolean exec() {
+		final long time = System.currentTimeMillis();
+		budget_.start(iterLimit_, timeLimit_);  // 反復は各探索が数える
+		done_.set(false);
+		shared_ = new double[pro_.constraintSize()];
+
+		final CrispProblem[] cps = new CrispProblem[size_];
+		final Worker[] ws = new Worker[size_];
+		final SolverMetrics[] wms = new SolverMetrics[size_];
+		final List<Callable<Boolean>> tasks = new ArrayList<>();
+		for(int i = 0; i < size_; ++i) {
+			final CrispProblem cp = cps[i] = pro_.copy();
+			final Random r = new Random(rand_.nextLong());
+			if(i > 0) {  // 最初の探索以外は初期割り当てを変える
+				for(Variable v: cp.variables()) v.assign(v.domain().random(r));
+			}
+			final Worker w = ws[i] = new Worker(cp);
+			w.setRandom(r);
+			w.setUsingScoreTable(useScoreTable_);
+			w.setIterationLimit(iterLimit_);
+			w.setTimeLimit(timeLimit_);
+			w.setTargetRate(targetDeg_);
+			if(metrics() != null) w.setMetrics(wms[i] = new SolverMetrics());  // 計測値は同期しないため探索ごとに分ける
+			tasks.add(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					final boolean res = w.exec();
+					if(res) done_.set(true);
+					return res;
+				}
+			});
+		}
+		final ExecutorService es = Executors.newFixedThreadPool(size_, new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "breakout");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		int best = -1, bestSize = -1;
+		boolean success = false;
+		try {
+			final List<Future<Boolean>> fs = es.invokeAll(tasks);
+			for(int i = 0; i < size_; ++i) {
+				final boolean res;
+				try {
+					res = fs.get(i).get();
+				} catch(ExecutionException e) {
+					if(debug) debugStream.println("A worker failed: " + e.getCause());
+					continue;
+				}
+				final int s = cps[i].satisfiedConstraintSize();
+				if((res && !success) || (res == success && bestSize < s)) {
+					best = i;
+					bestSize = s;
+					success = res;
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			es.shutdownNow();
+			if(metrics() != null) addMetrics(ws, wms);
+		}
+		if(best == -1) return false;
+
+		final CrispProblem bp = cps[best];
+		for(int i = 0, n = pro_.variableSize(); i < n; ++i) pro_.variableAt(i).assign(bp.variableAt(i).value());
+		if(debug) debugStream.println("Adopted: worker #" + best + ", time: " + (System.currentTimeMillis() - time));
+		return success;
+	}
+
+	// 各探索の反復回数と計測値を，このソルバの計測値に加える．
+	private void addMetrics(final Worker[] ws, final SolverMetrics[] wms) {
+		final SolverMetrics m = metrics();
+		for(int i = 0; i < ws.length; ++i) {
+			m.add(SolverMetrics.Counter.NODE, ws[i].iterationCount());
+			for(SolverMetrics.Counter c: SolverMetrics.Counter.values()) m.add(c, wms[i].count(c));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 各探索の乱数は，ここで設定した乱数から生成されます．
+	 */
+	@Override
+	public void setSeed(final long seed) {
+		setRandom(new Random(seed));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 各探索の乱数は，ここで設定した乱数から生成されます．
+	 */
+	@Override
+	public void setRandom(final Random r) {
+		rand_ = r;
+	}
+
+}
@@ -0,0 +1,244 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispTabledRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ProblemSnapshot;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.DomainPruner;
+
+/**
+ * 二項制約についての辺整合を実行するクラスです．
+ * AC-3rmに基づき，変数単位の重複のないキュー，辺ごとの支持の記憶(残余)，変数ごとの辺の隣接リストを用います．
+ * 値の除去はドメインを置き換えずにDomainPrunerへのhideとして行うため，探索中にレベルを指定して段階的に適用し，revealで元に戻すことができます．
+ * 関係が表によって定義されている場合は，ビット集合に対する語ごとの論理積で支持を探します．
+ * 単項制約と三項以上の制約は扱いません．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class ArcConsistency {
+
+	private final Variable[] vars_;
+	private final DomainPruner[] pruners_;
+
+	// 辺(arc)ごとの情報．辺aは制約arcCons_[a]のarcPos_[a]番目の変数arcVars_[a]を，相手の変数arcOthers_[a]に整合させる．
+	private final Constraint[] arcCons_;
+	private final int[] arcVars_;
+	private final int[] arcOthers_;
+	private final int[] arcPos_;
+	private final int[] residueOffsets_;  // 辺aの値iの残余はresidues_[residueOffsets_[a] + i]
+	private final int[] residues_;
+
+	// 変数ごとの，その変数を相手とする辺のリスト(CSR形式)
+	private final int[] watchOffsets_;
+	private final int[] watches_;
+
+	// 変数単位の循環キュー
+	private final int[] queue_;
+	private final boolean[] inQueue_;
+	private int head_, size_;
+
+	/**
+	 * 変数ごとに新たにDomainPrunerを用意して，辺整合を実行するクラスを生成します．
+	 * @param p クリスプ制約充足問題
+	 */
+	public ArcConsistency(final CrispProblem p) {
+		this(p, newPruners(p));
+	}
+
+	/**
+	 * 変数のインデックス順に並べたDomainPrunerを指定して，辺整合を実行するクラスを生成します．
+	 * 探索中に用いる場合は，ソルバが保持するDomainPrunerを指定します．
+	 * @param p クリスプ制約充足問題
+	 * @param pruners 各変数のDomainPruner
+	 */
+	public ArcConsistency(final CrispProblem p, final DomainPruner[] pruners) {
+		final ProblemSnapshot ps = p.snapshot();
+		final int vs = ps.variableSize();
+		vars_ = new Variable[vs];
+		for(int i = 0; i < vs; ++i) vars_[i] = ps.variableAt(i);
+		pruners_ = pruners.clone();
+
+		int arcSize = 0;
+		for(int ci = 0; ci < ps.constraintSize(); ++ci) {
+			if(ps.arityOf(ci) == 2) arcSize += 2;
+		}
+		arcCons_ = new Constraint[arcSize];
+		arcVars_ = new int[arcSize];
+		arcOthers_ = new int[arcSize];
+		arcPos_ = new int[arcSize];
+		residueOffsets_ = new int[arcSize + 1];
+		watchOffsets_ = new int[vs + 1];
+
+		int a = 0;
+		for(int ci = 0; ci < ps.constraintSize(); ++ci) {
+			if(ps.arityOf(ci) != 2) continue;
+			final int x = ps.variableIndexOf(ci, 0), y = ps.variableIndexOf(ci, 1);
+			for(int pos = 0; pos < 2; ++pos, ++a) {
+				arcCons_[a] = ps.constraintAt(ci);
+				arcVars_[a] = (pos == 0) ? x : y;
+				arcOthers_[a] = (pos == 0) ? y : x;
+				arcPos_[a] = pos;
+				residueOffsets_[a + 1] = residueOffsets_[a] + vars_[arcVars_[a]].domain().size();
+				++watchOffsets_[arcOthers_[a] + 1];
+			}
+		}
+		residues_ = new int[residueOffsets_[arcSize]];
+		Arrays.fill(residues_, -1);
+
+		for(int i = 0; i < vs; ++i) watchOffsets_[i + 1] += watchOffsets_[i];
+		watches_ = new int[arcSize];
+		final int[] fill = new int[vs];
+		for(a = 0; a < arcSize; ++a) {
+			final int o = arcOthers_[a];
+			watches_[watchOffsets_[o] + fill[o]++] = a;
+		}
+
+		queue_ = new int[vs];
+		inQueue_ = new boolean[vs];
+	}
+
+	static private DomainPruner[] newPruners(final CrispProblem p) {
+		final DomainPruner[] ps = new DomainPruner[p.variableSize()];
+		for(int i = 0; i < ps.length; ++i) ps[i] = new DomainPruner(p.variableAt(i).domain().size());
+		return ps;
+	}
+
+	/**
+	 * 変数のDomainPrunerを返します．
+	 * @param v 変数
+	 * @return DomainPruner
+	 */
+	public DomainPruner prunerOf(final Variable v) {
+		return pruners_[v.index()];
+	}
+
+	/**
+	 * すべての辺について整合を実行します．
+	 * 除去された値は指定したレベルでhideされます．
+	 * @param level レベル
+	 * @return 空のドメインが生じなければtrue，そうでなければfalse
+	 */
+	public boolean propagate(final int level) {
+		for(int i = 0; i < vars_.length; ++i) enqueue(i);
+		return process(level);
+	}
+
+	/**
+	 * 指定した変数のドメインが変化したものとして，その影響が及ぶ辺について整合を実行します．
+	 * 探索中に変数のドメインを絞り込んだ後に呼び出します．
+	 * 除去された値は指定したレベルでhideされます．
+	 * @param v ドメインが変化した変数
+	 * @param level レベル
+	 * @return 空のドメインが生じなければtrue，そうでなければfalse
+	 */
+	public boolean propagate(final Variable v, final int level) {
+		enqueue(v.index());
+		return process(level);
+	}
+
+	/**
+	 * 辺整合を実行し，各変数のドメインを除去されずに残った値からなるドメインに置き換えます．
+	 * 前処理として一度だけ用いることを想定しています．
+	 * ドメインの置き換えられた変数は未割当の状態になり，問題の構造が変わるため，このインスタンスはそれ以降使えません．
+	 * @param p 対象のクリスプ制約充足問題(生成時に指定したもの)
+	 * @return 空のドメインが生じなければtrue，そうでなければfalse
+	 */
+	public boolean apply(final CrispProblem p) {
+		if(!propagate(-1)) return false;
+		final List<Integer> temp = new ArrayList<>();
+		for(int i = 0; i < vars_.length; ++i) {
+			final DomainPruner dp = pruners_[i];
+			if(dp.hiddenSize() == 0) continue;
+			final Domain d = vars_[i].domain();
+			temp.clear();
+			for(int k = 0; k < d.size(); ++k) {
+				if(!dp.isValueHidden(k)) temp.add(d.at(k));
+			}
+			vars_[i].setDomain(p.createDomain(temp));
+		}
+		return true;
+	}
+
+	private void enqueue(final int vi) {
+		if(inQueue_[vi]) return;
+		inQueue_[vi] = true;
+		int t = head_ + size_;
+		if(t >= queue_.length) t -= queue_.length;
+		queue_[t] = vi;
+		++size_;
+	}
+
+	private int dequeue() {
+		final int vi = queue_[head_];
+		if(++head_ == queue_.length) head_ = 0;
+		--size_;
+		inQueue_[vi] = false;
+		return vi;
+	}
+
+	private void clearQueue() {
+		while(size_ > 0) dequeue();
+	}
+
+	private boolean process(final int level) {
+		while(size_ > 0) {
+			final int y = dequeue();
+			for(int k = watchOffsets_[y], n = watchOffsets_[y + 1]; k < n; ++k) {
+				final int a = watches_[k];
+				if(revise(a, level)) {
+					final int x = arcVars_[a];
+					if(pruners_[x].isEmpty()) {
+						clearQueue();
+						return false;
+					}
+					enqueue(x);
+				}
+			}
+		}
+		return true;
+	}
+
+	// 辺aについて，支持のない値を除去する．
+	private boolean revise(final int a, final int level) {
+		final Constraint c = arcCons_[a];
+		final int pos = arcPos_[a];
+		final Variable x = vars_[arcVars_[a]], y = vars_[arcOthers_[a]];
+		final DomainPruner dpx = pruners_[arcVars_[a]], dpy = pruners_[arcOthers_[a]];
+		final Domain dx = x.domain(), dy = y.domain();
+		final long[] bits = dpy.visibleBits();
+		final CrispRelation rel = c.crispRelation();
+		final CrispTabledRelation tab = (rel instanceof CrispTabledRelation && ((CrispTabledRelation)rel).domainAt(pos) == dx && ((CrispTabledRelation)rel).domainAt(1 - pos) == dy) ? (CrispTabledRelation)rel : null;
+		final int ro = residueOffsets_[a];
+		boolean deleted = false;
+
+		for(int i = 0, n = dx.size(); i < n; ++i) {
+			if(dpx.isValueHidden(i)) continue;
+			final int r = residues_[ro + i];
+			if(r != -1 && !dpy.isValueHidden(r)) continue;  // 残余がまだ有効
+			final int s = (tab != null) ? tab.findSupport(pos, i, bits) : findSupport(rel, pos, dx.at(i), dy, dpy);
+			if(s != -1) {
+				residues_[ro + i] = s;
+			} else {
+				dpx.hide(i, level);
+				deleted = true;
+			}
+		}
+		return deleted;
+	}
+
+	static private int findSupport(final CrispRelation rel, final int pos, final int val, final Domain dy, final DomainPruner dpy) {
+		for(int j = 0, n = dy.size(); j < n; ++j) {
+			if(dpy.isValueHidden(j)) continue;
+			final boolean s = (pos == 0) ? rel.isSatisfied(val, dy.at(j)) : rel.isSatisfied(dy.at(j), val);
+			if(s) return j;
+		}
+		return -1;
+	}
+
+}
@@ -2,6 +2,7 @@ package jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy;
 
 import java.util.*;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ConstraintGraph;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractFuzzySolver;
@@ -17,8 +18,6 @@ public class FlexibleLocalChanges extends AbstractFuzzySolver implements Systema
 
 	private double lt_, lb_;
 
-	private int iterCount_;
-	private long endTime_;
 	private int globalReturn_;
 
 	public FlexibleLocalChanges(Problem p) {
@@ -134,8 +133,9 @@ public class FlexibleLocalChanges extends AbstractFuzzySolver implements Systema
 		Iterator<Variable> it = X3.iterator();
 		while(it.hasNext()) {
 			if(targetDeg_ != UNSPECIFIED && targetDeg_ <= pro_.worstSatisfactionDegree()) {globalReturn_ = 1; return consX12;}  // 違反率が指定より改善されたら成功
-			if(iterLimit_ < iterCount_++) {globalReturn_ = 0; return consX12;}  // 規定回数繰り返したら失敗
-			if(endTime_ < System.currentTimeMillis()) {globalReturn_ = 0; return consX12;}  // 制限時間を超えたら失敗
+			if(budget_.isExhausted()) {globalReturn_ = 0; return consX12;}  // 規定回数繰り返したか，制限時間を超えたら失敗
+			if(isCanceled()) {globalReturn_ = 0; return consX12;}  // 中止が要求されたら失敗
+			progress(budget_.iterationCount());
 
 			Variable xi = it.next();
 			double consX12xi = flcVariable(X1, X2, xi, consX1, consX12, rc);
@@ -167,11 +167,12 @@ public class FlexibleLocalChanges extends AbstractFuzzySolver implements Systema
 	}
 
 	private double testX1(Set<Variable> X1, Variable xi, double bestcons, double rc) {
+		final ConstraintGraph cg = pro_.constraintGraph();
 		double cd = 1.0;
 		Set<Constraint> cs = new HashSet<>();
 		List<Constraint> temp = new ArrayList<>();
 		for(Variable v: X1) {
-			pro_.constraintsBetween(v, xi, temp);
+			cg.constraintsBetween(v.index(), xi.index(), temp);
 			cs.addAll(temp);
 		}
 		for(Constraint c: cs) {
@@ -184,15 +185,16 @@ public class FlexibleLocalChanges extends AbstractFuzzySolver implements Systema
 	}
 
 	private double testX12(Set<Variable> X1, Set<Variable> X2, Variable xi, double consX1xi, double consX12, Set<Constraint> cr) {
+		final ConstraintGraph cg = pro_.constraintGraph();
 		double csd = 1.0;
 		Set<Constraint> cs = new HashSet<>();
 		List<Constraint> temp = new ArrayList<>();
 		for(Variable v: X1) {
-			pro_.constraintsBetween(v, xi, temp);
+			cg.constraintsBetween(v.index(), xi.index(), temp);
 			cs.addAll(temp);
 		}
 		for(Variable v: X2) {
-			pro_.constraintsBetween(v, xi, temp);
+			cg.constraintsBetween(v.index(), xi.index(), temp);
 			cs.addAll(temp);
 		}
 		for(Constraint c: cs) {
@@ -210,8 +212,7 @@ public class FlexibleLocalChanges extends AbstractFuzzySolver implements Systema
 
 	@Override
 	protected boolean exec() {
-		endTime_ = (timeLimit_ == -1) ? Long.MAX_VALUE : (System.currentTimeMillis() + timeLimit_);
-		iterCount_ = 0;
+		budget_.start(iterLimit_, timeLimit_);
 
 		double wsd = pro_.worstSatisfactionDegree();
 		if(pro_.emptyVariableSize() == 0) pro_.clearAllVariables();
@@ -4,8 +4,10 @@ import java.util.*;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ProblemSnapshot;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractFuzzySolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.StochasticSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.Assignment;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
@@ -17,8 +19,15 @@ import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
  */
 public class FuzzyBreakout extends AbstractFuzzySolver implements StochasticSolver, Randomizable {
 
+	static private final double EPSILON = 1e-9;  // 得点表の差分更新による丸め誤差を吸収する
+
 	private final double[] weights_;
 	private boolean isRandomized_ = true;
+	private Random rand_ = new Random();
+	private boolean useScoreTable_ = false;
+	private double[] scores_;  // 変数viがそのドメインのj番目の値をとったときの重み付き不充足度．scores_[ps.domainOffsetOf(vi) + j]
+	private int[] stamps_;     // 最悪の変数の列挙で用いる変数ごとの印
+	private int stamp_;
 	private double lastSolutionDeg_;
 
 	public FuzzyBreakout(Problem p) {
@@ -28,14 +37,16 @@ public class FuzzyBreakout extends AbstractFuzzySolver implements StochasticSolv
 	}
 
 	private void findCandidates(Variable[] worstVariables, AssignmentList candidates) {
+		final ProblemSnapshot ps = pro_.snapshot();
 		double maxDiff = 0.0;
 		for(Variable v: worstVariables) {
 			final int v_val = v.value();  // 値を保存
-			Constraint[] v_c = v.constraints();
+			final int vi = v.index(), deg = ps.degreeOf(vi);
 			Domain v_d = v.domain();
 
 			double nowVio = 0.0;
-			for(Constraint c: v_c) {
+			for(int k = 0; k < deg; ++k) {
+				Constraint c = ps.constraintOf(vi, k);
 				nowVio += (1.0 - c.satisfactionDegree()) * weights_[c.index()];
 			}
 			out: for(int i = 0; i < v_d.size(); ++i) {
@@ -43,7 +54,8 @@ public class FuzzyBreakout extends AbstractFuzzySolver implements StochasticSolv
 				if(v_val == d) continue;
 				v.assign(d);
 				double diff = nowVio;
-				for(Constraint c: v_c) {
+				for(int k = 0; k < deg; ++k) {
+					Constraint c = ps.constraintOf(vi, k);
 					diff -= (1.0 - c.satisfactionDegree()) * weights_[c.index()];
 					if(diff < maxDiff) continue out;  // これまでの改善幅よりも少なくなったら次の変数を試す
 				}
@@ -60,30 +72,120 @@ public class FuzzyBreakout extends AbstractFuzzySolver implements StochasticSolv
 	}
 
 	private Variable[] listWorstVariables(List<Constraint> worstConstraints) {
-		Set<Variable> wvs = new HashSet<>(pro_.variableSize());
+		if(stamps_ == null || stamps_.length != pro_.variableSize()) stamps_ = new int[pro_.variableSize()];
+		if(++stamp_ == 0) {  // 一周したら印を消す
+			Arrays.fill(stamps_, 0);
+			stamp_ = 1;
+		}
+		List<Variable> wvs = new ArrayList<>();
 		for(int i = 0; i < worstConstraints.size(); ++i) {
 			Constraint c = worstConstraints.get(i);
-			for(int j = 0; j < c.size(); ++j) wvs.add(c.at(j));
+			for(int j = 0; j < c.size(); ++j) {
+				Variable v = c.at(j);
+				if(stamps_[v.index()] == stamp_) continue;
+				stamps_[v.index()] = stamp_;
+				wvs.add(v);
+			}
+		}
+		return wvs.toArray(new Variable[wvs.size()]);
+	}
+
+	// 得点表を使うモード --------
+
+	// 全変数の全値についての重み付き不充足度を求める．
+	private void buildScoreTable() {
+		final ProblemSnapshot ps = pro_.snapshot();
+		scores_ = new double[ps.valueSize()];
+		for(int vi = 0; vi < ps.variableSize(); ++vi) {
+			final Variable v = ps.variableAt(vi);
+			final int o = ps.domainOffsetOf(vi), n = v.domain().size();
+			for(int k = 0, deg = ps.degreeOf(vi); k < deg; ++k) {
+				final Constraint c = ps.constraintOf(vi, k);
+				final double w = weights_[c.index()];
+				for(int j = 0; j < n; ++j) scores_[o + j] += (1.0 - c.satisfactionDegreeWith(v, j)) * w;
+			}
+		}
+	}
+
+	// 制約cの得点への寄与をfactor倍して，スコープのexclude以外の変数の得点に加える．
+	private void addContribution(final ProblemSnapshot ps, final Constraint c, final Variable exclude, final double factor) {
+		for(int p = 0, s = c.size(); p < s; ++p) {
+			final Variable y = c.at(p);
+			if(y == exclude) continue;
+			final int o = ps.domainOffsetOf(y.index());
+			for(int j = 0, n = y.domain().size(); j < n; ++j) scores_[o + j] += (1.0 - c.satisfactionDegreeWith(y, j)) * factor;
+		}
+	}
+
+	// 変数の値を変更し，隣接する変数の得点を更新する(変数自身の得点は自身の値に依存しないため変わらない)．
+	private void assignWithScore(final Variable x, final int value) {
+		final ProblemSnapshot ps = pro_.snapshot();
+		final int xi = x.index(), deg = ps.degreeOf(xi);
+		for(int k = 0; k < deg; ++k) {
+			final Constraint c = ps.constraintOf(xi, k);
+			addContribution(ps, c, x, -weights_[c.index()]);
+		}
+		x.assign(value);
+		for(int k = 0; k < deg; ++k) {
+			final Constraint c = ps.constraintOf(xi, k);
+			addContribution(ps, c, x, weights_[c.index()]);
 		}
-		return wvs.toArray(new Variable[0]);
+	}
+
+	// 得点表を走査して候補を求める．
+	private void findCandidatesByScore(Variable[] worstVariables, AssignmentList candidates) {
+		final ProblemSnapshot ps = pro_.snapshot();
+		double maxDiff = 0.0;
+		for(Variable v: worstVariables) {
+			final Domain v_d = v.domain();
+			final int vi = v.index(), o = ps.domainOffsetOf(vi), cur = v.isEmpty() ? -1 : v_d.indexOf(v.value());
+			double nowVio = 0.0;
+			if(cur != -1) {
+				nowVio = scores_[o + cur];
+			} else {  // 未割り当ての変数の得点は表にないので求める
+				for(int k = 0, deg = ps.degreeOf(vi); k < deg; ++k) {
+					Constraint c = ps.constraintOf(vi, k);
+					nowVio += (1.0 - c.satisfactionDegree()) * weights_[c.index()];
+				}
+			}
+			for(int j = 0, n = v_d.size(); j < n; ++j) {
+				if(j == cur) continue;
+				final double diff = nowVio - scores_[o + j];
+				if(diff > maxDiff + EPSILON) {  // これまでよりも改善する割り当てが見つかった
+					maxDiff = diff;
+					candidates.clear();
+					candidates.add(v, v_d.at(j));
+				} else if(maxDiff != 0.0 && Math.abs(diff - maxDiff) <= EPSILON) {  // これまでと同等の改善が可能な割り当てが見つかった
+					candidates.add(v, v_d.at(j));
+				}
+			}
+		}
+	}
+
+	private void increaseWeight(final int index) {
+		++weights_[index];
+		if(scores_ != null) addContribution(pro_.snapshot(), pro_.constraintAt(index), null, 1.0);
 	}
 
 	@Override
 	protected boolean exec() {
-		long endTime = (timeLimit_ == -1) ? Long.MAX_VALUE : (System.currentTimeMillis() + timeLimit_);
-		int iterCount = 0;
+		budget_.start(iterLimit_, timeLimit_);
 
 		double deg = pro_.worstSatisfactionDegree();
 		List<Constraint> vc = new ArrayList<>();
 		AssignmentList candidates = new AssignmentList();
 
 		AssignmentList sol = new AssignmentList();
+
+		scores_ = null;
+		if(useScoreTable_) buildScoreTable();
 		
 		while(true) {
 			double wsd = pro_.constraintsWithWorstSatisfactionDegree(vc);
 			if(targetDeg_ != UNSPECIFIED && targetDeg_ <= wsd) return true;  // 違反度が指定より改善されたら成功
-			if(iterLimit_ < iterCount++) break;  // 規定回数繰り返したら失敗
-			if(endTime < System.currentTimeMillis()) break;  // 制限時間を超えたら失敗
+			if(budget_.isExhausted()) break;  // 規定回数繰り返したか，制限時間を超えたら失敗
+			if(isCanceled()) break;  // 中止が要求されたら失敗
+			progress(budget_.iterationCount());
 
 			if(debug) debugStream.println("Worst satisfaction degree: " + wsd);
 			
@@ -95,15 +197,25 @@ public class FuzzyBreakout extends AbstractFuzzySolver implements StochasticSolv
 				}
 			}
 
-			findCandidates(listWorstVariables(vc), candidates);
+			if(scores_ != null) {
+				findCandidatesByScore(listWorstVariables(vc), candidates);
+			} else {
+				findCandidates(listWorstVariables(vc), candidates);
+			}
 			if(candidates.size() > 0) {
-				Assignment e = isRandomized_ ? candidates.arbitraryAssignment() : candidates.get(0);
-				e.apply();
+				Assignment e = isRandomized_ ? candidates.arbitraryAssignment(rand_) : candidates.get(0);
+				if(scores_ != null) {
+					assignWithScore(e.variable(), e.value());
+				} else {
+					e.apply();
+				}
 				candidates.clear();
+				count(SolverMetrics.Counter.MOVE);
 				if(debug) debugStream.println("\t" + e);
 			} else {
-				for(int i = 0; i < vc.size(); ++i) weights_[vc.get(i).index()]++;
+				for(int i = 0; i < vc.size(); ++i) increaseWeight(vc.get(i).index());
 				if(debug) debugStream.println("Breakout!");
+				count(SolverMetrics.Counter.WEIGHT_UPDATE);
 			}
 		}
 		if(targetDeg_ == UNSPECIFIED && deg < pro_.worstSatisfactionDegree()) return true;
@@ -112,9 +224,20 @@ public class FuzzyBreakout extends AbstractFuzzySolver implements StochasticSolv
 
 	protected boolean foundSolution(final AssignmentList solution, final double worstDegree) {return false;}
 
+	/**
+	 * 変数と値ごとの重み付き不充足度の表を保持して，候補の選択を行うかどうかを設定します．
+	 * 有効にすると，値を変更した変数に隣接する変数の得点だけが更新され，候補の選択は表の走査となります．
+	 * ドメインが大きく，最悪の充足度をとる変数が多い問題で有効です．
+	 * デフォルトではfalseです．
+	 * @param flag 表を使うならtrue
+	 */
+	public void setUsingScoreTable(final boolean flag) {
+		useScoreTable_ = flag;
+	}
+
 	/**
 	 * アルゴリズムのランダム性を設定します．
-	 * ランダム性を有効にすると局所解に陥る危険性が減りますが，解に再現性がなくなります．
+	 * ランダム性を有効にすると局所解に陥る危険性が減りますが，乱数の種を設定しない限り解に再現性がなくなります．
 	 * @param flag trueならランダム性が有効
 	 */
 	@Override
@@ -122,4 +245,20 @@ public class FuzzyBreakout extends AbstractFuzzySolver implements StochasticSolv
 		isRandomized_ = flag;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSeed(final long seed) {
+		setRandom(new Random(seed));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setRandom(final Random r) {
+		rand_ = r;
+	}
+
 }
@@ -4,11 +4,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ConstraintGraph;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractFuzzySolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.DomainPruner;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.PruningTrail;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.SystematicSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
 
@@ -25,12 +28,10 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 	private static enum BranchCode {CONTINUE, TERMINATE}
 
 	private final AssignmentList solution_ = new AssignmentList();
+	private final PruningTrail trail_ = new PruningTrail();
 	private final Variable[] vars_;
-	private Constraint[][][] relCons_;  // 2変数間の制約をキャッシュするテーブル
 	private double solutionWorstDeg_ = 0.0;  // デフォルトは0.0
 
-	private int iterCount_;
-	private long endTime_;
 	private boolean useMRV_ = false;
 	private double degInc_ = 0.0;
 
@@ -47,7 +48,6 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 		super(p, "Forward checking for fuzzy CSPs");
 		vars_ = pro_.variables().toArray(new Variable[pro_.variableSize()]);
 		sequence_ = new Variable[pro_.variableSize()];
-		initializeRelatedConstraintTable();
 		checkedCons_ = new boolean[pro_.constraintSize()];
 
 		List<Constraint> temp = new ArrayList<>();
@@ -70,42 +70,19 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 		solutionWorstDeg_ = worstSatisfactionDegree;
 	}
 
-	// 2変数間の制約をキャッシュするテーブルを初期化する．
-	private void initializeRelatedConstraintTable() {
-		List<Constraint> temp = new ArrayList<>();
-		relCons_ = new Constraint[vars_.length][vars_.length][];
-		for(int j = 0; j < vars_.length; ++j) {
-			relCons_[j] = new Constraint[vars_.length][];
-			for(int i = 0; i < vars_.length; i++) {
-				if(i < j) {
-					pro_.constraintsBetween(vars_[i], vars_[j], temp);
-					relCons_[j][i] = temp.toArray(new Constraint[0]);
-				}
-			}
-		}
-	}
-
-	// 2変数間の制約をキャッシュするテーブルをから制約の配列を取得する．
-	private Constraint[] getConstraintsBetween(int vi_index, int vj_index) {
-		if(vi_index < vj_index) return relCons_[vj_index][vi_index];
-		return relCons_[vi_index][vj_index];
-	}
-
 	// 単項制約を現在の最悪充足度より悪化させるドメインの要素を枝刈りする．
 	private boolean pruneUnaryConstraints() {
 		for(Constraint c: unaryCons_) {
 			final Variable v = c.at(0);
-			final int orgVal = v.value();  // 値を保存
 			final Domain d = v.domain();
 			final DomainPruner dc = (DomainPruner)v.solverObject;
 
 			for(int i = 0, n = d.size(); i < n; ++i) {
-				v.assign(d.at(i));
-				if(c.satisfactionDegree() <= solutionWorstDeg_) {
+				if(c.satisfactionDegreeWith(v, i) <= solutionWorstDeg_) {
 					dc.hide(i, -1);  // ここで枝刈り!!
+					count(SolverMetrics.Counter.PRUNE);
 				}
 			}
-			v.assign(orgVal);  // 値を復元
 			if(dc.isEmpty()) return false;
 		}
 		return true;
@@ -117,12 +94,11 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 		DomainPruner dci = (DomainPruner)vi.solverObject;
 		for(int i = 0, n = di.size(); i < n; ++i) {
 			if(dci.isValueHidden(i)) continue;
-			vi.assign(di.at(i));
-			if(c.satisfactionDegree() <= solutionWorstDeg_) {  // 「小なりイコール」のときは解とならない※
+			if(c.satisfactionDegreeWith(vi, i) <= solutionWorstDeg_) {  // 「小なりイコール」のときは解とならない※
 				dci.hide(i, currentLevel);  // ここで枝刈り!!
+				count(SolverMetrics.Counter.PRUNE);
 			}
 		}
-		vi.clear();
 		return !dci.isEmpty();  // 未来変数viのドメインdiが空にならなければ成功．
 	}
 
@@ -145,13 +121,12 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 			vi.assign(di.at(i));  // viへの仮割り当て
 			for(int j = 0, nj = dj.size(); j < nj; ++j) {
 				if(dcj.isValueHidden(j)) continue;
-				vj.assign(dj.at(j));  // viへの仮割り当て
-				double s = c.satisfactionDegree();
+				double s = c.satisfactionDegreeWith(vj, j);  // vjへの仮割り当て
 				if(s > solutionWorstDeg_) continue loop_i;  // viへの仮割り当てはOKだった→次の仮割り当てへ
 			}
 			dci.hide(i, currentLevel);  // 「小なりイコール」のときは解とならない※
+			count(SolverMetrics.Counter.PRUNE);
 		}
-		vj.clear();
 		vi.clear();
 		return !dci.isEmpty();  // 未来変数viのドメインdiが空にならなければ成功．
 	}
@@ -182,14 +157,13 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 				vj.assign(dj.at(j));  // viへの仮割り当て
 				for(int k = 0, nk = dk.size(); k < nk; ++k) {
 					if(dck.isValueHidden(k)) continue;
-					vk.assign(dk.at(k));  // viへの仮割り当て
-					double s = c.satisfactionDegree();
+					double s = c.satisfactionDegreeWith(vk, k);  // vkへの仮割り当て
 					if(s > solutionWorstDeg_) continue loop_i;  // viへの仮割り当てはOKだった→次の仮割り当てへ
 				}
 			}
 			dci.hide(i, currentLevel);  // 「小なりイコール」のときは解とならない※
+			count(SolverMetrics.Counter.PRUNE);
 		}
-		vk.clear();
 		vj.clear();
 		vi.clear();
 		return !dci.isEmpty();  // 未来変数viのドメインdiが空にならなければ成功．
@@ -235,18 +209,21 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 				}
 			}
 			dci.hide(i, currentLevel);
+			count(SolverMetrics.Counter.PRUNE);
 		}
 		for(Variable v: emp) v.clear();
 		vi.clear();
 		return !dci.isEmpty();  // 未来変数viのドメインdiが空にならなければ成功．
 	}
 
-	// 現在変数の割り当てから未来変数に割り当て可能かを調べる．
+	// 現在変数の割り当てから未来変数に割り当て可能かを調べる(制約グラフで隣接する変数だけを調べる)．
 	private boolean checkForward(final int currentLevel, final int currentIndex) {
-		for(Variable v_i: vars_) {
+		final ConstraintGraph cg = pro_.constraintGraph();
+		for(int j = 0, m = cg.neighborSizeOf(currentIndex); j < m; ++j) {
+			final Variable v_i = cg.neighborOf(currentIndex, j);
 			if(!v_i.isEmpty()) continue;  // 過去変数か現在変数だったら
-			Constraint[] cs = getConstraintsBetween(currentIndex, v_i.index());
-			for(Constraint c: cs) {
+			for(int l = 0, s = cg.constraintSizeBetween(currentIndex, j); l < s; ++l) {
+				final Constraint c = cg.constraintBetween(currentIndex, j, l);
 				int emptySize = c.emptyVariableSize();
 				if(emptySize == 1) {
 					if(!checkForwardConsistency(currentLevel, v_i, c)) return false;
@@ -267,11 +244,13 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 	// 現在変数の割り当てから過去変数との充足度が現在の最悪充足度より悪化していないかを調べる．
 	private boolean checkBackwardConsistency(Variable vc) {
 		Arrays.fill(checkedCons_, false);  // 再利用
-		for(int i = 0; i < vars_.length; ++i) {  // 過去変数を探す
-			Variable vi = vars_[i];
-			if(vi == vc || vi.isEmpty()) continue;  // 未来変数か現在変数だったら
-			Constraint[] cs = getConstraintsBetween(vc.index(), i);
-			for(Constraint c: cs) {
+		final ConstraintGraph cg = pro_.constraintGraph();
+		final int vci = vc.index();
+		for(int j = 0, m = cg.neighborSizeOf(vci); j < m; ++j) {  // 隣接する過去変数を探す
+			Variable vi = cg.neighborOf(vci, j);
+			if(vi.isEmpty()) continue;  // 未来変数だったら
+			for(int l = 0, n = cg.constraintSizeBetween(vci, j); l < n; ++l) {
+				final Constraint c = cg.constraintBetween(vci, j, l);
 				if(checkedCons_[c.index()]) continue;  // 多項制約では重複の恐れがあるため
 				double s = c.satisfactionDegree();
 				if(s != Constraint.UNDEFINED && s <= solutionWorstDeg_) {  // 「小なりイコール」のときは解とならない
@@ -284,12 +263,15 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 	}
 
 	private void refresh() {
+		final ConstraintGraph cg = pro_.constraintGraph();
 		for(int i = 0; i < sequence_.length; ++i) {
 			int index_vi = sequence_[i].index();
 			for(int j = i + 1; j < sequence_.length; ++j) {
 				Variable vj = sequence_[j];
-				Constraint[] cs = getConstraintsBetween(index_vi, vj.index());
-				for(Constraint c: cs) {
+				final int pos = cg.neighborPositionOf(index_vi, vj.index());
+				if(pos == -1) continue;  // 隣接していなければ制約はない
+				for(int l = 0, s = cg.constraintSizeBetween(index_vi, pos); l < s; ++l) {
+					final Constraint c = cg.constraintBetween(index_vi, pos, l);
 					int orgVal = vj.value();
 					Domain dj = vj.domain();
 					DomainPruner dcj = (DomainPruner)vj.solverObject;
@@ -298,6 +280,7 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 						vj.assign(dj.at(k));
 						if(c.satisfactionDegree() <= solutionWorstDeg_) {
 							dcj.hide(k, i);  // ここで枝刈り!!
+							count(SolverMetrics.Counter.PRUNE);
 						}
 					}
 					vj.assign(orgVal);
@@ -329,7 +312,7 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 
 //	// 探索の終了を調べる
 //	private BranchCode checkTermination(int currentLevel) {
-//		if(iterLimit_ < iterCount_++ || endTime_ < System.currentTimeMillis()) {
+//		if(budget_.isExhausted()) {
 //			if(targetDeg_ != UNSPECIFIED && targetDeg_ <= solutionWorstDeg_) return BranchCode.SUCCESS;  // 違反度が目標より改善された→探索終了
 //			if(targetDeg_ == UNSPECIFIED && 0.0 < solutionWorstDeg_) return BranchCode.SUCCESS;
 //			return BranchCode.TERMINATE;  // 規定回数繰り返したか制限時間を超えた→探索終了
@@ -394,13 +377,14 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 
 		for(int i = 0, n = d.size(); i < n; ++i) {
 			if(dc.isValueHidden(i)) continue;
-			if(iterLimit_ < iterCount_++ || endTime_ < System.currentTimeMillis()) {
+			progress(budget_.iterationCount());
+			if(budget_.isExhausted() || isCanceled()) {
 				bc = BranchCode.TERMINATE;  // 制限により探索終了
 				break;
 			}
 			vc.assign(d.at(i));
 
-			for(Variable v: vars_) ((DomainPruner)v.solverObject).reveal(currentLevel);
+			trail_.reveal(currentLevel);
 			if(!checkBackwardConsistency(vc)) continue;
 			if(!checkForward(currentLevel, vc_index)) continue;
 
@@ -409,7 +393,7 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 			if(bc == BranchCode.TERMINATE) break;
 		}
 		if(bc == BranchCode.CONTINUE) {  // 親に戻って探索するときは，ここでの枝刈りを元に戻す．
-			for(Variable v: vars_) ((DomainPruner)v.solverObject).reveal(currentLevel);
+			trail_.reveal(currentLevel);
 		}
 		vc.clear();
 		return bc;
@@ -425,7 +409,8 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 
 		for(int i = 0, n = d.size(); i < n; ++i) {
 			if(dc.isValueHidden(i)) continue;
-			if(iterLimit_ < iterCount_++ || endTime_ < System.currentTimeMillis()) {
+			progress(budget_.iterationCount());
+			if(budget_.isExhausted() || isCanceled()) {
 				bc = BranchCode.TERMINATE;  // 制限により探索終了
 				break;
 			}
@@ -448,15 +433,15 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 	// 探索を行う．
 	@Override
 	protected boolean exec() {
-		endTime_ = (timeLimit_ == -1) ? Long.MAX_VALUE : (System.currentTimeMillis() + timeLimit_);
-		iterCount_ = 0;
+		budget_.start(iterLimit_, timeLimit_);
 
-		for(Variable v: vars_) v.solverObject = new DomainPruner(v.domain().size());  // 枝刈り器の生成
+		trail_.clear();
+		for(Variable v: vars_) v.solverObject = new DomainPruner(v.domain().size(), trail_);  // 枝刈り器の生成
 		pro_.clearAllVariables();
 		if(!pruneUnaryConstraints()) return false;  // worstSatisfactionDegree_が更新されたので呼び出す
 
 		boolean success = false;
-		while(!(iterLimit_ < iterCount_++ || endTime_ < System.currentTimeMillis())) {
+		while(!(budget_.isExhausted() || isCanceled())) {
 			branch(0);
 			if(solution_.isEmpty()) break;
 			if(debug) debugStream.println("\tFound a solution: " + solutionWorstDeg_);
@@ -467,10 +452,11 @@ public class FuzzyForwardChecking extends AbstractFuzzySolver implements Systema
 				success = true;
 				break;
 			}
-			for(Variable v: vars_) ((DomainPruner)v.solverObject).revealAll();
+			trail_.revealAll();
 		}
 		if(success) solution_.apply();
 		for(Variable v: vars_) v.solverObject = null;  // 枝刈り器の削除
+		trail_.clear();
 		return success;
 	}
 
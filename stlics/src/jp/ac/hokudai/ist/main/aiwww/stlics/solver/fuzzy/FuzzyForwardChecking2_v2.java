@@ -1,13 +1,14 @@
 package jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy;
 
-import java.util.ArrayList;
-import java.util.List;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ConstraintGraph;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractFuzzySolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.DomainPruner;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.PruningTrail;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.SystematicSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
 
@@ -22,12 +23,10 @@ public class FuzzyForwardChecking2_v2 extends AbstractFuzzySolver implements Sys
 	private static enum BranchCode {CONTINUE, TERMINATE, UPDATED}
 
 	private final AssignmentList solution_ = new AssignmentList();
+	private final PruningTrail trail_ = new PruningTrail();
 	private final Variable[] vars_;
-	private Constraint[][][] relCons_;  // 2変数間の制約をキャッシュするテーブル
 	private double solutionWorstDeg_ = 0.0;  // 既出解の充足度（これ未満の解を見つける必要なし）
 
-	private int iterCount_;
-	private long endTime_;
 	private boolean useMRV_ = false;
 	private double degInc_ = 0.0;
 
@@ -38,7 +37,6 @@ public class FuzzyForwardChecking2_v2 extends AbstractFuzzySolver implements Sys
 	public FuzzyForwardChecking2_v2(Problem p) {
 		super(p, "Forward checking for binary fuzzy CSPs");
 		vars_ = pro_.variables().toArray(new Variable[pro_.variableSize()]);
-		initializeRelatedConstraintTable();
 		solutionWorstDeg_ = Math.max(0.0, p.worstSatisfactionDegree());
 	}
 
@@ -55,48 +53,28 @@ public class FuzzyForwardChecking2_v2 extends AbstractFuzzySolver implements Sys
 		solutionWorstDeg_ = worstSatisfactionDegree;
 	}
 
-	// 2変数間の制約をキャッシュするテーブルを初期化する．
-	private void initializeRelatedConstraintTable() {
-		List<Constraint> temp = new ArrayList<>();
-		relCons_ = new Constraint[vars_.length][vars_.length][];
-		for(int j = 0; j < vars_.length; ++j) {
-			relCons_[j] = new Constraint[vars_.length][];
-			for(int i = 0; i < vars_.length; i++) {
-				if(i < j) {
-					pro_.constraintsBetween(vars_[i], vars_[j], temp);
-					relCons_[j][i] = temp.toArray(new Constraint[0]);
-				}
-			}
-		}
-	}
-
-	// 2変数間の制約をキャッシュするテーブルをから制約の配列を取得する．
-	private Constraint[] getConstraintsBetween(int vi_index, int vj_index) {
-		if(vi_index < vj_index) return relCons_[vj_index][vi_index];
-		return relCons_[vi_index][vj_index];
-	}
-
 	// 現在変数と一つの未来変数との整合を調べ，整合しないドメインの要素を枝刈りする(制約のスコープの未割り当て変数が一つの場合)．
 	private boolean checkForwardConsistency(int currentLevel, Variable vi, Constraint c) {
 		Domain di = vi.domain();
 		DomainPruner dci = (DomainPruner)vi.solverObject;
 		for(int i = 0, n = di.size(); i < n; ++i) {
 			if(dci.isValueHidden(i)) continue;
-			vi.assign(di.at(i));
-			if(c.satisfactionDegree() <= solutionWorstDeg_) {  // 「小なりイコール」のときは解とならない※
+			if(c.satisfactionDegreeWith(vi, i) <= solutionWorstDeg_) {  // 「小なりイコール」のときは解とならない※
 				dci.hide(i, currentLevel);  // ここで枝刈り!!
+				count(SolverMetrics.Counter.PRUNE);
 			}
 		}
-		vi.clear();
 		return !dci.isEmpty();  // 未来変数viのドメインdiが空にならなければ成功．
 	}
 
-	// 現在変数の割り当てから未来変数に割り当て可能かを調べる．
+	// 現在変数の割り当てから未来変数に割り当て可能かを調べる(制約グラフで隣接する変数だけを調べる)．
 	private boolean checkForward(final int currentLevel, final int currentIndex) {
-		for(Variable v_i: vars_) {
+		final ConstraintGraph cg = pro_.constraintGraph();
+		for(int j = 0, m = cg.neighborSizeOf(currentIndex); j < m; ++j) {
+			final Variable v_i = cg.neighborOf(currentIndex, j);
 			if(!v_i.isEmpty()) continue;  // 過去変数か現在変数だったら
-			Constraint[] cs = getConstraintsBetween(currentIndex, v_i.index());
-			for(Constraint c: cs) {
+			for(int l = 0, s = cg.constraintSizeBetween(currentIndex, j); l < s; ++l) {
+				final Constraint c = cg.constraintBetween(currentIndex, j, l);
 				if(c.size() == 2) {  // 2項制約だったら
 					if(!checkForwardConsistency(currentLevel, v_i, c)) return false;
 				}
@@ -134,14 +112,15 @@ public class FuzzyForwardChecking2_v2 extends AbstractFuzzySolver implements Sys
 
 		for(int i = 0, n = d.size(); i < n; ++i) {
 			if(dc.isValueHidden(i)) continue;
-			if(iterLimit_ < iterCount_++ || endTime_ < System.currentTimeMillis()) {
+			progress(budget_.iterationCount());
+			if(budget_.isExhausted() || isCanceled()) {
 				bc = BranchCode.TERMINATE;  // 制限により探索終了
 				break;
 			}
 //			System.out.println("currentLevel " + currentLevel);
 			vc.assign(d.at(i));
 
-			for(Variable v: vars_) ((DomainPruner)v.solverObject).reveal(currentLevel);
+			trail_.reveal(currentLevel);
 			if(!checkForward(currentLevel, vc_index)) continue;
 
 			int nextLevel = currentLevel + 1;
@@ -149,7 +128,7 @@ public class FuzzyForwardChecking2_v2 extends AbstractFuzzySolver implements Sys
 			if(bc == BranchCode.TERMINATE) break;
 		}
 		if(bc == BranchCode.CONTINUE) {  // 親に戻って探索するときは，ここでの枝刈りを元に戻す．
-			for(Variable v: vars_) ((DomainPruner)v.solverObject).reveal(currentLevel);
+			trail_.reveal(currentLevel);
 		}
 		vc.clear();
 		return bc;
@@ -166,7 +145,8 @@ public class FuzzyForwardChecking2_v2 extends AbstractFuzzySolver implements Sys
 
 		for(int i = 0, n = d.size(); i < n; ++i) {
 			if(dc.isValueHidden(i)) continue;
-			if(iterLimit_ < iterCount_++ || endTime_ < System.currentTimeMillis()) {
+			progress(budget_.iterationCount());
+			if(budget_.isExhausted() || isCanceled()) {
 				bc = BranchCode.TERMINATE;  // 制限により探索終了
 				break;
 			}
@@ -193,17 +173,16 @@ public class FuzzyForwardChecking2_v2 extends AbstractFuzzySolver implements Sys
 	@Override
 	protected boolean exec() {
 		final long stime = System.currentTimeMillis();
-		endTime_ = (timeLimit_ == -1) ? Long.MAX_VALUE : (stime + timeLimit_);
-		iterCount_ = 0;
+		budget_.start(iterLimit_, timeLimit_);
 
-		for(Variable v: vars_) v.solverObject = new DomainPruner(v.domain().size());  // 枝刈り器の生成
+		trail_.clear();
+		for(Variable v: vars_) v.solverObject = new DomainPruner(v.domain().size(), trail_);  // 枝刈り器の生成
 		pro_.clearAllVariables();
 
 		AssignmentList sol = new AssignmentList();
 
 		boolean success = false;
-		long ctime;
-		while(!(iterLimit_ < iterCount_++ || endTime_ < (ctime = System.currentTimeMillis()))) {
+		while(!(budget_.isExhausted() || isCanceled())) {
 			BranchCode bc = branch(0);
 //			System.out.println("iterCount_ " + iterCount_);
 //			if(solution_.isEmpty() || solution_.equals(sol) || bc == BranchCode.CONTINUE) break;  // 2つ目の条件を追加 2012/07/31
@@ -212,7 +191,7 @@ public class FuzzyForwardChecking2_v2 extends AbstractFuzzySolver implements Sys
 			sol.set(solution_);
 			solution_.clear();  // 次の探索で解が見つからなかった時，それを分かるようにするため，クリアしておく．
 			
-			if(debug) debugStream.println(String.format("\tFound a solution: %1.4f, time: %d", solutionWorstDeg_, ctime - stime));
+			if(debug) debugStream.println(String.format("\tFound a solution: %1.4f, time: %d", solutionWorstDeg_, System.currentTimeMillis() - stime));
 			if(foundSolution(sol, solutionWorstDeg_)) {  // フック呼び出し
 				success = true;
 				break;
@@ -225,10 +204,11 @@ public class FuzzyForwardChecking2_v2 extends AbstractFuzzySolver implements Sys
 				success = true;
 				break;
 			}
-			for(Variable v: vars_) ((DomainPruner)v.solverObject).revealAll();
+			trail_.revealAll();
 		}
 		if(success) sol.apply();
 		for(Variable v: vars_) v.solverObject = null;  // 枝刈り器の削除
+		trail_.clear();
 		return success;
 	}
 
@@ -2,13 +2,18 @@ package jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy;
 
 import java.util.*;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ConstraintGraph;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.ProblemSnapshot;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractFuzzySolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.ParallelCandidateEvaluator;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.StochasticSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.Assignment;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
+import jp.ac.hokudai.ist.main.aiwww.stlics.util.IndexQueue;
 
 /**
  * SRS 3を実装したクラスです．
@@ -63,44 +68,40 @@ public class SRS3 extends AbstractFuzzySolver implements StochasticSolver, Rando
 	// リペア時に割り当て候補を採用する際の許容幅(SRS 3に厳密に従うなら，0にすること)
 	static final private double REPAIR_THRESHOLD = 0;  // Double.MIN_VALUE * 10;
 
-	private final Set<ConstraintNode> closedList_ = new HashSet<>();
-	private final Set<ConstraintNode> openList_ = new LinkedHashSet<>();
+	private final BitSet closedList_;     // 制約のインデックスの集合
+	private final IndexQueue openList_;   // 制約のインデックスの待ち行列
 	private final ConstraintNode[] nodes_;
-	private final Constraint[][] neighborConstraints_;  // キャッシュ
-	private final List<ConstraintNode> c_stars_ = new ArrayList<>();
+	private final IndexQueue c_stars_;    // 制約のインデックスの集合(追加した順序を保つ)
 
-	private int iterCount_;
-	private long endTime_;
 	private boolean isRandomized_ = true;
+	private Random rand_ = new Random();
+	private ParallelCandidateEvaluator evaluator_;  // nullでなければ並列にリペアの候補を評価する
 
 	public SRS3(Problem p) {
 		super(p, "SRS 3");
 		List<Constraint> cs = pro_.constraints();
 		nodes_ = new ConstraintNode[pro_.constraintSize()];
 		for(int i = 0; i < cs.size(); ++i) nodes_[i] = new ConstraintNode(cs.get(i));
-		neighborConstraints_ = new Constraint[pro_.constraintSize()][];
-	}
-
-	private Constraint[] getNeighborConstraints(Constraint c) {
-		int i = c.index();
-		if(neighborConstraints_[i] == null) {
-			neighborConstraints_[i] = c.neighbors(new HashSet<Constraint>()).toArray(new Constraint[0]);
-		}
-		return neighborConstraints_[i];
+		closedList_ = new BitSet(pro_.constraintSize());
+		openList_ = new IndexQueue(pro_.constraintSize());
+		c_stars_ = new IndexQueue(pro_.constraintSize());
 	}
 
 	private boolean repair(Constraint c0) {
+		count(SolverMetrics.Counter.REPAIR);
 		if(debug) debugStream.print("Repair");
+		if(evaluator_ != null) return repairInParallel(c0);
 		double minDeg0 = c0.satisfactionDegree();  // ターゲットc0は確実にこれよりも改善すること
 		double maxDeg0 = c0.satisfactionDegree();  // ターゲットc0をこれまでで最も改善できた場合の充足度
 		double min = pro_.worstSatisfactionDegree();  // 近傍制約の下限
 		AssignmentList candidates = new AssignmentList();
+		final ProblemSnapshot ps = pro_.snapshot();
 
 		// 条件を満たす候補が，過去の候補よりも強ければ入れ替え，最後まで候補が見つからなければ失敗
 		for(int i = 0; i < c0.size(); ++i) {
 			Variable v = c0.at(i);
 			final int v_val = v.value();  // 値を保存
-			Constraint[] v_c = v.constraints();
+			final int vi = v.index(), v_n = ps.degreeOf(vi);
 			Domain v_d = v.domain();
 
 			out: for(int j = 0; j < v_d.size(); ++j) {
@@ -109,7 +110,8 @@ public class SRS3 extends AbstractFuzzySolver implements StochasticSolver, Rando
 				v.assign(d);
 				double deg0 = c0.satisfactionDegree();
 				if(minDeg0 > deg0 || maxDeg0 - deg0 > REPAIR_THRESHOLD) continue;  // ターゲットc0を改善できないなら，その割り当ては不採用
-				for(Constraint c: v_c) {
+				for(int k = 0; k < v_n; ++k) {
+					Constraint c = ps.constraintOf(vi, k);
 					if(c == c0) continue;
 					double deg = c.satisfactionDegree();
 					if(deg != Constraint.UNDEFINED && deg < min) continue out;  // 近傍制約cが一つでも最悪以下になるなら，その割り当ては不採用
@@ -123,7 +125,56 @@ public class SRS3 extends AbstractFuzzySolver implements StochasticSolver, Rando
 			v.assign(v_val);  // 値を復元
 		}
 		if(candidates.size() > 0) {
-			Assignment e = isRandomized_ ? candidates.arbitraryAssignment() : candidates.get(0);
+			Assignment e = isRandomized_ ? candidates.arbitraryAssignment(rand_) : candidates.get(0);
+			e.apply();
+			if(debug) debugStream.println("\t" + e);
+			return true;
+		}
+		if(debug) debugStream.println();
+		return false;
+	}
+
+	// リペアの候補を並列に評価する(変数の値を変更せずに評価し，選ばれる候補は逐次の場合と同じ)．
+	private boolean repairInParallel(final Constraint c0) {
+		final double minDeg0 = c0.satisfactionDegree();  // ターゲットc0は確実にこれよりも改善すること
+		final double min = pro_.worstSatisfactionDegree();  // 近傍制約の下限
+		final ProblemSnapshot ps = pro_.snapshot();
+		final Variable[] vs = new Variable[c0.size()];
+		for(int i = 0; i < vs.length; ++i) vs[i] = c0.at(i);
+
+		final double[] scores = evaluator_.evaluate(vs, new ParallelCandidateEvaluator.Scorer() {
+			@Override
+			public double score(final int position, final int index) {
+				final Variable v = vs[position];
+				if(v.value() == v.domain().at(index)) return Double.NaN;
+				final double deg0 = c0.satisfactionDegreeWith(v, index);
+				if(minDeg0 > deg0 || evaluator_.bound() - deg0 > REPAIR_THRESHOLD) return Double.NaN;  // ターゲットc0を改善できないなら，その割り当ては不採用
+				final int vi = v.index();
+				for(int k = 0, v_n = ps.degreeOf(vi); k < v_n; ++k) {
+					final Constraint c = ps.constraintOf(vi, k);
+					if(c == c0) continue;
+					final double deg = c.satisfactionDegreeWith(v, index);
+					if(deg != Constraint.UNDEFINED && deg < min) return Double.NaN;  // 近傍制約cが一つでも最悪以下になるなら，その割り当ては不採用
+				}
+				evaluator_.raiseBound(deg0);
+				return deg0;
+			}
+		}, minDeg0);
+		double maxDeg0 = minDeg0;  // ターゲットc0をこれまでで最も改善できた場合の充足度
+		for(int i = 0; i < vs.length; ++i) {
+			for(int j = 0, o = evaluator_.offsetOf(i), n = vs[i].domain().size(); j < n; ++j) {
+				if(scores[o + j] > maxDeg0) maxDeg0 = scores[o + j];  // NaNとの比較は常にfalse
+			}
+		}
+		final AssignmentList candidates = new AssignmentList();
+		for(int i = 0; i < vs.length; ++i) {
+			final Variable v = vs[i];
+			for(int j = 0, o = evaluator_.offsetOf(i), n = v.domain().size(); j < n; ++j) {
+				if(maxDeg0 - scores[o + j] <= REPAIR_THRESHOLD) candidates.add(v, v.domain().at(j));
+			}
+		}
+		if(candidates.size() > 0) {
+			Assignment e = isRandomized_ ? candidates.arbitraryAssignment(rand_) : candidates.get(0);
 			e.apply();
 			if(debug) debugStream.println("\t" + e);
 			return true;
@@ -133,11 +184,12 @@ public class SRS3 extends AbstractFuzzySolver implements StochasticSolver, Rando
 	}
 
 	private void shrink(ConstraintNode node) {
+		count(SolverMetrics.Counter.SHRINK);
 		if(debug) debugStream.println("Shrink");
 		boolean removeCstar = false;
 		while(true) {
 			node = node.parent();
-			if(c_stars_.remove(node)) {
+			if(c_stars_.remove(node.getConstraint().index())) {
 				removeCstar = true;
 				break;
 			}
@@ -145,20 +197,26 @@ public class SRS3 extends AbstractFuzzySolver implements StochasticSolver, Rando
 		}
 		List<ConstraintNode> temp = new ArrayList<>();
 		node.getDescendants(temp);  // tempはnodeを含む
-		for(ConstraintNode cn: temp) cn.clear();  // 再利用に備える
-		openList_.removeAll(temp);
-		closedList_.removeAll(temp);
-		if(!removeCstar) openList_.add(node);
+		for(ConstraintNode cn: temp) {
+			cn.clear();  // 再利用に備える
+			final int i = cn.getConstraint().index();
+			openList_.remove(i);
+			closedList_.clear(i);
+		}
+		if(!removeCstar) openList_.add(node.getConstraint().index());
 	}
 
 	private void spread(ConstraintNode node) {
+		count(SolverMetrics.Counter.SPREAD);
 		if(debug) debugStream.println("Spread");
-		closedList_.add(node);
-		for(Constraint c: getNeighborConstraints(node.getConstraint())) {
-			ConstraintNode cn = nodes_[c.index()];
-			if(!closedList_.contains(cn) && !openList_.contains(cn)) {  // OpenにもClosed含まれていない制約の場合
-				node.add(cn);
-				openList_.add(cn);
+		final int ci = node.getConstraint().index();
+		closedList_.set(ci);
+		final ConstraintGraph cg = pro_.constraintGraph();
+		for(int k = 0, n = cg.constraintNeighborSizeOf(ci); k < n; ++k) {  // 乱数の種による再現性のため，隣接する制約は常に同じ順序でたどる
+			final int i = cg.constraintNeighborIndexOf(ci, k);
+			if(!closedList_.get(i) && !openList_.contains(i)) {  // OpenにもClosed含まれていない制約の場合
+				node.add(nodes_[i]);
+				openList_.add(i);
 			}
 		}
 	}
@@ -170,18 +228,18 @@ public class SRS3 extends AbstractFuzzySolver implements StochasticSolver, Rando
 		for(Constraint c: wsdcs) {
 			ConstraintNode cn = nodes_[c.index()];
 			cn.setParent(null);
-			c_stars_.add(cn);
+			c_stars_.add(c.index());
 		}
 		closedList_.clear();
 		openList_.clear();
-		openList_.addAll(c_stars_);
+		for(int i = c_stars_.first(); i != -1; i = c_stars_.next(i)) openList_.add(i);
 
 		while(!c_stars_.isEmpty() && !openList_.isEmpty()) {
-			if(iterLimit_ < iterCount_++ || endTime_ < System.currentTimeMillis()) return;
-			ConstraintNode node = openList_.iterator().next();
-			openList_.remove(node);
+			progress(budget_.iterationCount());
+			if(budget_.isExhausted() || isCanceled()) return;
+			ConstraintNode node = nodes_[openList_.poll()];
 			if(repair(node.getConstraint())) {
-				if(c_stars_.remove(node)) continue;  // リペアしたノードがC*に含まれる場合(削除する)
+				if(c_stars_.remove(node.getConstraint().index())) continue;  // リペアしたノードがC*に含まれる場合(削除する)
 				if(repair(node.parent().getConstraint())) {
 					shrink(node);  // 自分の改善が親の改善につながる場合
 					continue;
@@ -193,14 +251,13 @@ public class SRS3 extends AbstractFuzzySolver implements StochasticSolver, Rando
 
 	@Override
 	protected boolean exec() {
-		endTime_ = (timeLimit_ == -1) ? Long.MAX_VALUE : (System.currentTimeMillis() + timeLimit_);
-		iterCount_ = 0;
+		budget_.start(iterLimit_, timeLimit_);
 		if(targetDeg_ != UNSPECIFIED && targetDeg_ <= pro_.worstSatisfactionDegree()) return true;
 
 		AssignmentList sol = new AssignmentList();
 
 		boolean success = false;
-		while(!(iterLimit_ < iterCount_++ || endTime_ < System.currentTimeMillis())) {
+		while(!(budget_.isExhausted() || isCanceled())) {
 			srs();
 			if(!c_stars_.isEmpty()) break;
 			double solutionWorstDeg = pro_.worstSatisfactionDegree();
@@ -222,9 +279,20 @@ public class SRS3 extends AbstractFuzzySolver implements StochasticSolver, Rando
 
 	protected boolean foundSolution(final AssignmentList solution, final double worstDegree) {return false;}
 
+	/**
+	 * リペアの際に，ターゲットの制約の変数とその値の組を並列に評価するかどうかを設定します．
+	 * 評価は変数の値を変更せずに行われ，選ばれる候補は並列に評価しない場合と同じです．
+	 * 制約の変数が多い場合やドメインが大きな場合に有効です．
+	 * デフォルトではfalseです．
+	 * @param flag 並列に評価するならtrue
+	 */
+	public void setUsingParallelRepair(final boolean flag) {
+		evaluator_ = flag ? new ParallelCandidateEvaluator() : null;
+	}
+
 	/**
 	 * アルゴリズムのランダム性を設定します．
-	 * ランダム性を有効にすると局所解に陥る危険性が減りますが，解に再現性がなくなります．
+	 * ランダム性を有効にすると局所解に陥る危険性が減りますが，乱数の種を設定しない限り解に再現性がなくなります．
 	 * @param flag trueならランダム性が有効
 	 */
 	@Override
@@ -232,4 +300,20 @@ public class SRS3 extends AbstractFuzzySolver implements StochasticSolver, Rando
 		isRandomized_ = flag;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSeed(final long seed) {
+		setRandom(new Random(seed));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setRandom(final Random r) {
+		rand_ = r;
+	}
+
 }
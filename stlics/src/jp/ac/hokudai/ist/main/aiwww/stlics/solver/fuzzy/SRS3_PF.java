@@ -1,10 +1,13 @@
 package jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy;
 
+import java.util.Random;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.DebugSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.Solver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.filter.PostStabilize;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.CancelableSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.FuzzySolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.StochasticSolver;
 import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
 
 /**
@@ -13,14 +16,29 @@ import jp.ac.hokudai.ist.main.aiwww.stlics.util.AssignmentList;
  * @author Takuto Yanagida
  * @version 2010/11/16
  */
-public class SRS3_PF extends DebugSolver implements Solver, FuzzySolver {
+public class SRS3_PF extends DebugSolver implements Solver, FuzzySolver, StochasticSolver, CancelableSolver {
+
+	// 中止の要求をこのソルバから受け取るSRS 3
+	private class Inner extends SRS3 {
+
+		public Inner(final Problem p) {
+			super(p);
+		}
+
+		@Override
+		protected boolean isCanceled() {
+			return canceled_ || super.isCanceled();
+		}
+
+	}
 
 	transient protected Problem pro_;
-	private final SRS3 srs3_;
+	private final Inner srs3_;
+	private volatile boolean canceled_ = false;
 
 	public SRS3_PF(Problem p) {
 		pro_ = p;
-		srs3_ = new SRS3(p);
+		srs3_ = new Inner(p);
 	}
 
 	/**
@@ -57,13 +75,38 @@ public class SRS3_PF extends DebugSolver implements Solver, FuzzySolver {
 
 	/**
 	 * アルゴリズムのランダム性を設定します．
-	 * ランダム性を有効にすると局所解に陥る危険性が減りますが，解に再現性がなくなります．
+	 * ランダム性を有効にすると局所解に陥る危険性が減りますが，乱数の種を設定しない限り解に再現性がなくなります．
 	 * @param flag trueならランダム性が有効
 	 */
 	public void setRandomized(boolean flag) {
 		srs3_.setRandomized(flag);
 	}
 
+	/**
+	 * リペアの際に，ターゲットの制約の変数とその値の組を並列に評価するかどうかを設定します．
+	 * @param flag 並列に評価するならtrue
+	 * @see SRS3#setUsingParallelRepair(boolean)
+	 */
+	public void setUsingParallelRepair(final boolean flag) {
+		srs3_.setUsingParallelRepair(flag);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setSeed(final long seed) {
+		srs3_.setSeed(seed);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setRandom(final Random r) {
+		srs3_.setRandom(r);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -78,7 +121,12 @@ public class SRS3_PF extends DebugSolver implements Solver, FuzzySolver {
 			debugStream.println("---- " + name() + " started ----");
 		}
 		AssignmentList at = new AssignmentList(pro_);
-		final boolean res = srs3_.exec();
+		final boolean res;
+		try {
+			res = srs3_.exec();
+		} finally {
+			canceled_ = false;
+		}
 		if(res) {
 			PostStabilize.apply(pro_, at);
 		}
@@ -92,4 +140,12 @@ public class SRS3_PF extends DebugSolver implements Solver, FuzzySolver {
 		return res;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void cancel() {
+		canceled_ = true;
+	}
+
 }
@@ -0,0 +1,16 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait;
+
+/**
+ * 実行中の探索を他のスレッドから中止できるソルバであることを示します．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public interface CancelableSolver {
+
+	/**
+	 * 実行中の，もしくは次に実行するsolveの中止を要求します．
+	 * 他のスレッドから呼び出すことができます．ソルバは探索の区切りで要求に気づいて失敗として停止します．
+	 */
+	void cancel();
+
+}
@@ -1,11 +1,28 @@
 package jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait;
 
+import java.util.Random;
+
 /**
  * 確率的探索を行うソルバであることを示します．
- * このインタフェースはいかなるメソッドの実装を要求しません．
+ * 探索に用いる乱数はソルバごとに保持されるため，種を指定すれば同じ問題に対して同じ結果が再現されます．
+ * また，複数のソルバを並行して動かす際にも乱数の生成が競合しません．
  * @author Takuto Yanagida
- * @version 2010/05/07
+ * @version 2026/10/17
  */
 public interface StochasticSolver {
 
+	/**
+	 * 探索に用いる乱数の種を設定します．
+	 * setRandom(new Random(seed))と同じです．
+	 * @param seed 乱数の種
+	 */
+	void setSeed(final long seed);
+
+	/**
+	 * 探索に用いる乱数生成器を設定します．
+	 * 指定した乱数生成器は，このソルバの探索中は他のスレッドから使わないでください．
+	 * @param r 乱数生成器
+	 */
+	void setRandom(final Random r);
+
 }
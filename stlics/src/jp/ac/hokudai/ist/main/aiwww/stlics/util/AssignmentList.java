@@ -54,6 +54,10 @@ public class AssignmentList extends ArrayList<Assignment> {
 		return get(RAND.nextInt(size()));
 	}
 
+	public Assignment arbitraryAssignment(final Random r) {
+		return get(r.nextInt(size()));
+	}
+
 	public int differenceSize() {
 		int diff = 0;
 		for(final Assignment e: this) {
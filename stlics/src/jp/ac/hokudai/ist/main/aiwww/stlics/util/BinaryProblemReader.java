@@ -0,0 +1,92 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.*;
+
+/**
+ * BinaryProblemWriterで書き込まれたバイナリ形式の制約充足問題を読み込むリーダー・クラスです．
+ * ファイルをメモリ・マップし，関係の表はマップされたバッファを複製せずにFuzzyTabledRelation，CrispTabledRelationの表として使います．
+ * そのため読み込みは表の大きさによらずすぐに終わり，表はアクセスされた部分だけがOSによってメモリに読み込まれます．
+ * ファイルの大きさは2GB未満でなければなりません．また，問題を使う間はファイルを変更してはいけません．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class BinaryProblemReader {
+
+	transient private final File file_;
+	transient private final Problem problem_;
+
+	/**
+	 * 制約充足問題のリーダーを生成します．
+	 * @param file 読み込むファイル
+	 * @param problem 読み込み先の制約充足問題
+	 */
+	public BinaryProblemReader(final File file, final Problem problem) {
+		file_ = file;
+		problem_ = problem;
+	}
+
+	/**
+	 * バイナリ形式で書かれた制約充足問題を読み込みます．
+	 * @return 成功したらtrue，さもなくばfalse
+	 */
+	public boolean read() {
+		try(RandomAccessFile raf = new RandomAccessFile(file_, "r"); FileChannel ch = raf.getChannel()) {
+			if(ch.size() > Integer.MAX_VALUE) throw new IOException("File is too large to map");
+			final MappedByteBuffer mbb = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());  // マップはチャネルを閉じた後も有効
+			read(mbb.order(ByteOrder.LITTLE_ENDIAN));
+			return true;
+		} catch(IOException | RuntimeException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	private void read(final ByteBuffer buf) throws IOException {
+		if(buf.getInt() != BinaryProblemWriter.MAGIC) throw new IOException("Not a binary problem file");
+		final int version = buf.getInt();
+		if(version != BinaryProblemWriter.VERSION) throw new IOException("Unsupported version: " + version);
+		final int vs = buf.getInt(), cs = buf.getInt();
+
+		final Variable[] vars = new Variable[vs];
+		for(int i = 0; i < vs; ++i) {
+			final boolean assigned = (buf.getInt() != 0);
+			final int value = buf.getInt();
+			final int[] vals = new int[buf.getInt()];
+			for(int j = 0; j < vals.length; ++j) vals[j] = buf.getInt();
+			final Domain d = problem_.createDomain(vals);
+			vars[i] = assigned ? problem_.createVariable(d, value) : problem_.createVariable(d);
+		}
+		for(int i = 0; i < cs; ++i) {
+			final int kind = buf.getInt();
+			final Variable[] scope = new Variable[buf.getInt()];
+			final Domain[] doms = new Domain[scope.length];
+			for(int j = 0; j < scope.length; ++j) {
+				scope[j] = vars[buf.getInt()];
+				doms[j] = scope[j].domain();
+			}
+			final int len = buf.getInt();
+			buf.position((buf.position() + 7) & ~7);  // 8バイト境界へ
+
+			final ByteBuffer table = buf.slice().order(ByteOrder.LITTLE_ENDIAN);  // sliceはバイト順を引き継がない
+			table.limit(len * 8);
+			final Relation r;
+			if(kind == BinaryProblemWriter.FUZZY) {
+				r = new FuzzyTabledRelation(table.asDoubleBuffer(), doms);
+			} else if(kind == BinaryProblemWriter.CRISP) {
+				r = new CrispTabledRelation(table.asLongBuffer(), doms);
+			} else {
+				throw new IOException("Unknown relation kind: " + kind);
+			}
+			buf.position(buf.position() + len * 8);
+			problem_.createConstraint(r, scope);
+		}
+	}
+
+}
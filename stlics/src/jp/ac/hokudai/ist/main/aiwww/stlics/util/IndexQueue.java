@@ -0,0 +1,139 @@
+package jp.ac.hokudai.ist.main.aiwww.stlics.util;
+
+import java.util.Arrays;
+
+/**
+ * 0以上capacity未満の整数(制約や変数のインデックス)を，追加した順に保持する待ち行列です．
+ * 整数ごとの前後の要素を配列で持つ双方向連結リストとして実装されており，追加，削除，要素の判定を定数時間で行います．
+ * すでに含まれる整数を追加しても順序は変わりません(LinkedHashSetと同じ振る舞い)．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class IndexQueue {
+
+	static private final int ABSENT = -2;
+	static private final int END = -1;
+
+	private final int[] next_;
+	private final int[] prev_;
+	private int head_ = END, tail_ = END;
+	private int size_ = 0;
+
+	/**
+	 * 容量を指定して待ち行列を生成します．
+	 * @param capacity 容量(保持できる整数はcapacity未満)
+	 */
+	public IndexQueue(final int capacity) {
+		next_ = new int[capacity];
+		prev_ = new int[capacity];
+		Arrays.fill(next_, ABSENT);
+	}
+
+	/**
+	 * 整数を末尾に追加します．すでに含まれている場合は何もしません．
+	 * @param index 整数
+	 * @return 追加されたらtrue
+	 */
+	public boolean add(final int index) {
+		if(next_[index] != ABSENT) return false;
+		next_[index] = END;
+		prev_[index] = tail_;
+		if(tail_ == END) {
+			head_ = index;
+		} else {
+			next_[tail_] = index;
+		}
+		tail_ = index;
+		++size_;
+		return true;
+	}
+
+	/**
+	 * 整数を削除します．
+	 * @param index 整数
+	 * @return 含まれていて削除されたらtrue
+	 */
+	public boolean remove(final int index) {
+		if(next_[index] == ABSENT) return false;
+		final int n = next_[index], p = prev_[index];
+		if(p == END) {
+			head_ = n;
+		} else {
+			next_[p] = n;
+		}
+		if(n == END) {
+			tail_ = p;
+		} else {
+			prev_[n] = p;
+		}
+		next_[index] = ABSENT;
+		--size_;
+		return true;
+	}
+
+	/**
+	 * 整数が含まれているかどうかを返します．
+	 * @param index 整数
+	 * @return 含まれていればtrue
+	 */
+	public boolean contains(final int index) {
+		return next_[index] != ABSENT;
+	}
+
+	/**
+	 * 先頭の整数を取り除いて返します．
+	 * @return 先頭の整数．空なら-1
+	 */
+	public int poll() {
+		final int h = head_;
+		if(h != END) remove(h);
+		return h;
+	}
+
+	/**
+	 * 先頭の整数を返します．
+	 * @return 先頭の整数．空なら-1
+	 */
+	public int first() {
+		return head_;
+	}
+
+	/**
+	 * 指定した整数の次の整数を返します．firstと合わせて，追加した順に走査するのに使います．
+	 * @param index 含まれている整数
+	 * @return 次の整数．末尾なら-1
+	 */
+	public int next(final int index) {
+		return next_[index];
+	}
+
+	/**
+	 * 要素の個数を返します．
+	 * @return 要素の個数
+	 */
+	public int size() {
+		return size_;
+	}
+
+	/**
+	 * 空かどうかを返します．
+	 * @return 空ならtrue
+	 */
+	public boolean isEmpty() {
+		return size_ == 0;
+	}
+
+	/**
+	 * すべての要素を削除します．要素の個数に比例する時間がかかります．
+	 */
+	public void clear() {
+		for(int i = head_; i != END; ) {
+			final int n = next_[i];
+			next_[i] = ABSENT;
+			i = n;
+		}
+		head_ = tail_ = END;
+		size_ = 0;
+	}
+
+}
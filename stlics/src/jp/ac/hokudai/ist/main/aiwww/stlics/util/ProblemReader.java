@@ -1,18 +1,23 @@
 package jp.ac.hokudai.ist.main.aiwww.stlics.util;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.ArrayList;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.*;
 
 /**
  * 制約充足問題に対するユーティリティ・クラスです．
+ * 正規表現を使わずに文字を1つずつ読むトークナイザによって，ファイル全体を保持することなく読み込みます．
+ * 変数は制約の節に入った時点で，制約は関係を読んだ時点で問題に追加されるため，大きな関係の表を含むファイルでもメモリは問題そのものの大きさに比例します．
  * @author Takuto YANAGIDA
- * @version 2012/11/20
+ * @version 2026/10/17
  */
 public class ProblemReader {
 
@@ -21,126 +26,383 @@ public class ProblemReader {
 	static private final String CONSTRAINTS_SECTION = "[constraints]";
 	static private final String RELATIONS_SECTION = "[relations]";
 
-	transient private final BufferedReader reader_;
+	static private final String UNASSIGNED = "UNASSIGNED";
+	static private final int BUFFER_SIZE = 1 << 16;
+	static private final int EOF = -1;
+	static private final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};  // doubleで正確に表せる10の累乗
+
+	transient private final Reader reader_;
 	transient private final Problem problem_;
+	private final boolean ownsReader_;  // 読み込み後にリーダーを閉じるかどうか
+
+	private final char[] buf_ = new char[BUFFER_SIZE];
+	private int pos_ = 0, lim_ = 0;
+	private char[] token_ = new char[32];
+	private int tokenLen_ = 0;
+
+	private int[] values_ = new int[16];      // 変数のインデックスごとの初期値
+	private Domain[] domains_ = new Domain[16];
+	private int varSize_ = 0;
+	private Variable[] vars_;                 // 制約の節に入った時点で生成される
+	private int[][] scopes_ = new int[16][];  // 制約のインデックスごとのスコープ(変数のインデックス)
+	private int scopeSize_ = 0;
+	private final Map<Integer, Relation> pendingRelations_ = new HashMap<>();  // 先に現れた，後のインデックスの制約の関係
+	private int nextConstraint_ = 0;
+	private int[] intBuf_ = new int[16];
+	private double[] doubleBuf_ = new double[0];
+	private boolean[] boolBuf_ = new boolean[0];
+
+	private long charCount_ = 0;
+	private long valueCount_ = 0;
+	private long elapsedTime_ = 0;
 
 	/**
 	 * 制約充足問題のリーダーを生成します．
+	 * リーダーは内部でバッファリングされるため，BufferedReaderで包む必要はありません．
 	 * @param reader 読み込むリーダー
 	 * @param problem 読み込み先の制約充足問題
 	 */
 	public ProblemReader(final Reader reader, final Problem problem) {
-		reader_ = new BufferedReader(reader);
+		this(reader, problem, false);
+	}
+
+	/**
+	 * ファイルを指定して制約充足問題のリーダーを生成します．
+	 * ファイルは読み込みの後に閉じられます．
+	 * @param file 読み込むファイル(US-ASCII)
+	 * @param problem 読み込み先の制約充足問題
+	 * @throws FileNotFoundException ファイルが見つからない場合
+	 */
+	public ProblemReader(final File file, final Problem problem) throws FileNotFoundException {
+		this(new InputStreamReader(new FileInputStream(file), Charset.forName("US-ASCII")), problem, true);
+	}
+
+	private ProblemReader(final Reader reader, final Problem problem, final boolean ownsReader) {
+		reader_ = reader;
 		problem_ = problem;
+		ownsReader_ = ownsReader;
+		Arrays.fill(values_, Integer.MIN_VALUE);
+	}
+
+	// トークナイザ --------
+
+	private int peek() throws IOException {
+		if(pos_ == lim_) {
+			lim_ = reader_.read(buf_, 0, buf_.length);
+			pos_ = 0;
+			if(lim_ <= 0) {
+				lim_ = 0;
+				return EOF;
+			}
+			charCount_ += lim_;
+		}
+		return buf_[pos_];
+	}
+
+	private int next() throws IOException {
+		final int c = peek();
+		if(c != EOF) ++pos_;
+		return c;
+	}
+
+	static private boolean isLineEnd(final int c) {
+		return c == '\n' || c == '\r' || c == EOF;
+	}
+
+	// 値の区切り(空白，カンマ，括弧)かどうか．
+	static private boolean isSeparator(final int c) {
+		return c == ' ' || c == '\t' || c == ',' || c == '(' || c == ')' || c == '{' || c == '}';
+	}
+
+	private void skipLine() throws IOException {
+		while(!isLineEnd(peek())) ++pos_;
+	}
+
+	private void skipSpaces() throws IOException {
+		for(int c = peek(); c == ' ' || c == '\t'; c = peek()) ++pos_;
 	}
 
+	// 行内の次の値の先頭まで読み飛ばし，値があればtrueを返す．
+	private boolean nextValue() throws IOException {
+		for(int c = peek(); isSeparator(c); c = peek()) ++pos_;
+		return !isLineEnd(peek());
+	}
+
+	// 区切りか行末か等号までを字句としてtoken_に読む．
+	private void readToken() throws IOException {
+		tokenLen_ = 0;
+		for(int c = peek(); !isLineEnd(c) && !isSeparator(c) && c != '='; c = peek()) {
+			if(tokenLen_ == token_.length) token_ = Arrays.copyOf(token_, tokenLen_ * 2);
+			token_[tokenLen_++] = (char)c;
+			++pos_;
+		}
+		if(tokenLen_ == 0) throw new NumberFormatException("Empty token");
+	}
+
+	private String tokenString() {
+		return new String(token_, 0, tokenLen_);
+	}
+
+	private boolean tokenEquals(final String s) {
+		if(s.length() != tokenLen_) return false;
+		for(int i = 0; i < tokenLen_; ++i) {
+			if(s.charAt(i) != token_[i]) return false;
+		}
+		return true;
+	}
+
+	private int parseInt(final int from) {
+		int i = from;
+		final boolean neg = (i < tokenLen_ && token_[i] == '-');
+		if(neg || (i < tokenLen_ && token_[i] == '+')) ++i;
+		if(i == tokenLen_) throw new NumberFormatException(tokenString());
+		long v = 0;
+		for(; i < tokenLen_; ++i) {
+			final int d = token_[i] - '0';
+			if(d < 0 || 9 < d) throw new NumberFormatException(tokenString());
+			v = v * 10 + d;
+			if(v > (long)Integer.MAX_VALUE + 1) throw new NumberFormatException(tokenString());
+		}
+		if(neg) v = -v;
+		if(v > Integer.MAX_VALUE) throw new NumberFormatException(tokenString());
+		return (int)v;
+	}
+
+	private int readInt() throws IOException {
+		readToken();
+		return parseInt(0);
+	}
+
+	// 先頭の1文字を除いた部分を整数として読む("v12"や"c3"のインデックス)．
+	private int readIndex() throws IOException {
+		readToken();
+		return parseInt(1);
+	}
+
+	// 仮数が15桁以下の十進数は，仮数と10の累乗がともにdoubleで正確に表せるため，割り算で正しく丸められた値が得られる．それ以外はDouble.parseDoubleに任せる．
+	private double readDouble() throws IOException {
+		readToken();
+		int i = 0;
+		final boolean neg = (token_[0] == '-');
+		if(neg || token_[0] == '+') ++i;
+		long m = 0;
+		int digits = 0, scale = 0;
+		boolean point = false;
+		for(; i < tokenLen_; ++i) {
+			final char c = token_[i];
+			if(c == '.' && !point) {
+				point = true;
+				continue;
+			}
+			final int d = c - '0';
+			if(d < 0 || 9 < d || ++digits > 15) return Double.parseDouble(tokenString());  // 指数表記や長い仮数
+			m = m * 10 + d;
+			if(point) ++scale;
+		}
+		if(digits == 0) throw new NumberFormatException(tokenString());
+		final double v = m / POWERS_OF_TEN[scale];
+		return neg ? -v : v;
+	}
+
+	// 読み込み --------
+
 	/**
 	 * テキストとして書かれた制約充足問題を読み込みます．
 	 * ファイルのフォーマットは将来変更される可能性があります．
 	 * @return 成功したらtrue，さもなくばfalse
 	 */
 	public boolean read() {
-		int mode = 0;
-		final Map<String, Integer> vi2val = new HashMap<>();
-		final Map<String, Domain> vi2dom = new HashMap<>();
-		final Map<String, String[]> ci2vs = new HashMap<>();
-		final Map<String, double[]> ci2elms = new HashMap<>();
-
+		final long t = System.nanoTime();
 		try {
-			String line;
-			while((line = reader_.readLine()) != null) {
-				line = line.trim();
-				if(line.length() == 0 || line.charAt(0) == ';') continue;
-				if(line.charAt(0) == '[') {
-					switch (line) {
-					case VARIABLES_SECTION:   mode = 1; break;
-					case DOMAINS_SECTION:     mode = 2; break;
-					case CONSTRAINTS_SECTION: mode = 3; break;
-					case RELATIONS_SECTION:   mode = 4; break;
-					}
-					continue;
-				}
-				final String kv[] = line.split("\\s*=\\s*");
-				final String key = kv[0];
-				final String val = kv[1].replaceAll("[{}]", "");
-				final String vs[] = val.replaceAll("\\(|\\)", " ").split("\\s*[,\\s]\\s*");
-				switch(mode) {
-				case 1:  // variables
-				{
-					int va = Integer.MIN_VALUE;  // Variable.UNASSIGNED;
-					if(!"UNASSIGNED".equals(val)) va = Integer.valueOf(val);
-					vi2val.put(key, va);
-					break;
-				}
-				case 2:  // domains
-				{
-					final List<Integer> vals = new ArrayList<>();
-					for(String s: vs) vals.add(Integer.valueOf(s));
-					final Domain d = problem_.createDomain(vals);
-					vi2dom.put(key, d);
-					break;
-				}
-				case 3:  // constraints
-					ci2vs.put(key, vs);
-					break;
-				case 4:  // relations
-					final double[] elms = new double[vs.length];
-					for(int i = 0; i < elms.length; ++i) {
-						elms[i] = Double.valueOf(vs[i]);
-					}
-					ci2elms.put(key, elms);
-					break;
-				}
-			}
+			readAll();
+			return true;
 		} catch(NumberFormatException | IOException e) {
 			e.printStackTrace();
 			return false;
+		} finally {
+			elapsedTime_ = System.nanoTime() - t;
+			if(ownsReader_) {
+				try {
+					reader_.close();
+				} catch(IOException e) {
+					e.printStackTrace();
+				}
+			}
 		}
-		// make variable using vi2val and vi2dom
-		final Map<String, Variable> vi2v = new HashMap<>();
-		final String[] keys = new String[vi2val.size()];
-		for(String key: vi2val.keySet()) {
-			keys[Integer.valueOf(key.substring(1))] = key;
+	}
+
+	private void readAll() throws IOException {
+		int mode = 0;
+		while(true) {
+			for(int c = peek(); c == ' ' || c == '\t' || c == '\n' || c == '\r'; c = peek()) ++pos_;
+			final int c = peek();
+			if(c == EOF) break;
+			if(c == ';') {  // コメント
+				skipLine();
+				continue;
+			}
+			if(c == '[') {
+				readToken();
+				if(tokenEquals(VARIABLES_SECTION)) mode = 1;
+				else if(tokenEquals(DOMAINS_SECTION)) mode = 2;
+				else if(tokenEquals(CONSTRAINTS_SECTION)) mode = 3;
+				else if(tokenEquals(RELATIONS_SECTION)) mode = 4;
+				skipLine();
+				continue;
+			}
+			final int index = readIndex();
+			skipSpaces();
+			if(next() != '=') throw new IOException("'=' is expected at line of " + tokenString());
+			skipSpaces();
+			switch(mode) {
+			case 1: readVariable(index); break;
+			case 2: readDomain(index); break;
+			case 3: readScope(index); break;
+			case 4: readRelation(index); break;
+			default: throw new IOException("Section is not specified");
+			}
+			skipLine();
 		}
-		for(final String key: keys) {
-			final int val = vi2val.get(key);
-			final Domain d = vi2dom.get(key);
-			final Variable v = null;
-			if(val == Integer.MIN_VALUE) problem_.createVariable(d);
-			else problem_.createVariable(d, val);
-			vi2v.put(key, v);
+		createVariables();
+		if(!pendingRelations_.isEmpty() || nextConstraint_ < scopeSize_) throw new IOException("Relations of some constraints are missing");
+	}
+
+	private void ensureVariableCapacity(final int index) {
+		if(index < values_.length) return;
+		final int n = Math.max(index + 1, values_.length * 2);
+		final int o = values_.length;
+		values_ = Arrays.copyOf(values_, n);
+		Arrays.fill(values_, o, n, Integer.MIN_VALUE);  // 変数の節にない変数は未割り当て
+		domains_ = Arrays.copyOf(domains_, n);
+	}
+
+	private void readVariable(final int index) throws IOException {
+		if(vars_ != null) throw new IOException("Variables must precede constraints");  // 変数はすでに生成されている
+		ensureVariableCapacity(index);
+		readToken();
+		values_[index] = tokenEquals(UNASSIGNED) ? Integer.MIN_VALUE : parseInt(0);
+		if(varSize_ < index + 1) varSize_ = index + 1;
+	}
+
+	private void readDomain(final int index) throws IOException {
+		if(vars_ != null) throw new IOException("Variables must precede constraints");  // 変数はすでに生成されている
+		ensureVariableCapacity(index);
+		int n = 0;
+		while(nextValue()) {
+			if(n == intBuf_.length) intBuf_ = Arrays.copyOf(intBuf_, n * 2);
+			intBuf_[n++] = readInt();
 		}
+		domains_[index] = problem_.createDomain(Arrays.copyOf(intBuf_, n));
+		if(varSize_ < index + 1) varSize_ = index + 1;
+	}
 
-		// make constraints
-		final String[] keys2 = new String[ci2elms.size()];
-		for(final String key: ci2elms.keySet()) {
-			keys2[Integer.valueOf(key.substring(1))] = key;
+	// 変数の節と領域の節から，インデックスの順に変数を生成する．
+	private void createVariables() throws IOException {
+		if(vars_ != null) return;
+		vars_ = new Variable[varSize_];
+		for(int i = 0; i < varSize_; ++i) {
+			final Domain d = domains_[i];
+			if(d == null) throw new IOException("Domain of v" + i + " is missing");
+			vars_[i] = (values_[i] == Integer.MIN_VALUE) ? problem_.createVariable(d) : problem_.createVariable(d, values_[i]);
 		}
-		for(final String key: keys2) {
-			final String[] vs = ci2vs.get(key);
-			final Domain[] doms = new Domain[vs.length];
-			for(int i = 0; i < doms.length; ++i) doms[i] = vi2v.get(vs[i]).domain();
-			final double[] vals = ci2elms.get(key);
-			boolean isCrisp = true;
-			for(final double v: vals) {
-				if(v != 1.0 && v != 0.0) {
-					isCrisp = false;
-					break;
-				}
-			}
-			Relation r1;
-			if(isCrisp) {
-				final boolean[] bs = new boolean[vals.length];
-				for(int i = 0; i < bs.length; ++i) bs[i] = (vals[i] == 1.0);
-				r1 = new CrispTabledRelation(bs, doms);
-			} else {
-				r1 = new FuzzyTabledRelation(vals, doms);
-			}
-			final Variable[] vvs = new Variable[vs.length];
-			for(int i = 0; i < vs.length; ++i) vvs[i] = vi2v.get(vs[i]);
-			problem_.createConstraint(r1, vvs);
+		values_ = null;
+		domains_ = null;
+	}
+
+	private void readScope(final int index) throws IOException {
+		createVariables();
+		if(scopes_.length <= index) scopes_ = Arrays.copyOf(scopes_, Math.max(index + 1, scopes_.length * 2));
+		int n = 0;
+		while(nextValue()) {
+			if(n == intBuf_.length) intBuf_ = Arrays.copyOf(intBuf_, n * 2);
+			final int vi = readIndex();
+			if(vi < 0 || vars_.length <= vi) throw new IOException("Unknown variable: " + tokenString());
+			intBuf_[n++] = vi;
 		}
-		return true;
+		scopes_[index] = Arrays.copyOf(intBuf_, n);
+		if(scopeSize_ < index + 1) scopeSize_ = index + 1;
+	}
+
+	private void readRelation(final int index) throws IOException {
+		createVariables();
+		if(scopes_.length <= index || scopes_[index] == null) throw new IOException("Scope of c" + index + " is missing");
+		final int[] scope = scopes_[index];
+		final Domain[] doms = new Domain[scope.length];
+		int size = 1;
+		for(int i = 0; i < doms.length; ++i) {
+			doms[i] = vars_[scope[i]].domain();
+			size *= doms[i].size();
+		}
+		if(doubleBuf_.length != size) doubleBuf_ = new double[size];
+		boolean isCrisp = true;
+		int n = 0;
+		while(nextValue()) {
+			if(n == size) throw new IOException("Too many elements in relation of c" + index);
+			final double v = readDouble();
+			if(v != 1.0 && v != 0.0) isCrisp = false;
+			doubleBuf_[n++] = v;
+		}
+		if(n != size) throw new IOException("Too few elements in relation of c" + index);
+		valueCount_ += n;
+
+		Relation r;
+		if(isCrisp) {
+			if(boolBuf_.length != size) boolBuf_ = new boolean[size];
+			for(int i = 0; i < size; ++i) boolBuf_[i] = (doubleBuf_[i] == 1.0);
+			r = new CrispTabledRelation(boolBuf_, doms);
+		} else {
+			r = new FuzzyTabledRelation(doubleBuf_, doms);
+		}
+		if(index != nextConstraint_) {  // インデックスを保つため，順番が来るまで保留する
+			pendingRelations_.put(index, r);
+			return;
+		}
+		createConstraint(index, r);
+		for(Relation p; (p = pendingRelations_.remove(nextConstraint_)) != null; ) createConstraint(nextConstraint_, p);
+	}
+
+	private void createConstraint(final int index, final Relation r) {
+		final int[] scope = scopes_[index];
+		final Variable[] vs = new Variable[scope.length];
+		for(int i = 0; i < vs.length; ++i) vs[i] = vars_[scope[i]];
+		problem_.createConstraint(r, vs);
+		scopes_[index] = null;
+		++nextConstraint_;
+	}
+
+	// 統計 --------
+
+	/**
+	 * 読み込んだ文字数を返します．
+	 * @return 文字数
+	 */
+	public long charCount() {
+		return charCount_;
+	}
+
+	/**
+	 * 読み込んだ関係の要素の個数を返します．
+	 * @return 要素の個数
+	 */
+	public long valueCount() {
+		return valueCount_;
+	}
+
+	/**
+	 * 読み込みにかかった時間を返します．
+	 * @return 時間(ミリ秒)
+	 */
+	public long elapsedTime() {
+		return elapsedTime_ / 1000000;
+	}
+
+	/**
+	 * 読み込みの速さを返します．
+	 * @return 1秒あたりに読み込んだ文字数
+	 */
+	public double throughput() {
+		return (elapsedTime_ == 0) ? 0.0 : charCount_ * 1e9 / elapsedTime_;
 	}
 
 }
@@ -214,6 +214,19 @@ public class Problems {
 		}
 	}
 
+	/**
+	 * 制約充足問題の複製を返します．
+	 * 変数と制約は新規に生成され，変数の値と名前，制約の名前が写されます．ドメインとリレーションは元の問題のものが共有されます．
+	 * クリスプ制約充足問題の複製はクリスプ制約充足問題となります．
+	 * 複製への割り当ては元の問題に影響しないため，複数のソルバを並行して動かす際などに使えます．
+	 * Problem#copy()を呼び出します．
+	 * @param p 制約充足問題
+	 * @return 複製された制約充足問題
+	 */
+	static public Problem copy(final Problem p) {
+		return p.copy();
+	}
+
 	/**
 	 * ファジィ制約充足問題のクリスプ制約充足問題としてのビューを返します．
 	 * 指定したファジィ制約充足問題のリレーションとドメインが再利用されますが，その他の要素は新規に生成された要素となります．
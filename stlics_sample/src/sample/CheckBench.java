@@ -0,0 +1,50 @@
+package sample;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CheckCounter;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.AbstractFuzzySolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.DebugSolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.SolverMetrics;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.FuzzyForwardChecking;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.FuzzyForwardChecking2;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.FuzzyForwardChecking2_v2;
+import jp.ac.hokudai.ist.main.aiwww.stlics.util.ProblemReader;
+
+/**
+ * ファジィ前方チェック法の各版を，制約チェックの回数で比べる実装サンプル．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class CheckBench {
+
+	final static String FILE_NAME = "T:\\0906_Stlics\\FWL.txt";
+	final static int TIME_LIMIT = 10000;
+
+	static public void main(String args[]) throws FileNotFoundException {
+		DebugSolver.debug = false;
+		final Problem p = new Problem();
+		new ProblemReader(new File(args.length > 0 ? args[0] : FILE_NAME), p).read();
+
+		for(int i = 0; i < 3; ++i) {
+			final CheckCounter cc = new CheckCounter();
+			final Problem ip = cc.instrument(p);  // 関係を包んだ複製を解く
+			final AbstractFuzzySolver s;
+			switch(i) {
+			case 0:  s = new FuzzyForwardChecking(ip); break;
+			case 1:  s = new FuzzyForwardChecking2(ip); break;
+			default: s = new FuzzyForwardChecking2_v2(ip);
+			}
+			final SolverMetrics m = new SolverMetrics();
+			m.setCheckCounter(cc);
+			s.setMetrics(m);
+			s.setTimeLimit(TIME_LIMIT);
+			s.solve();
+			System.out.println(s.getClass().getSimpleName() + "   Degree: " + ip.worstSatisfactionDegree()
+					+ "   Checks: " + m.count(SolverMetrics.Counter.CONSTRAINT_CHECK)
+					+ "   Nodes: " + m.count(SolverMetrics.Counter.NODE) + "   Time: " + m.elapsedTime());
+		}
+	}
+
+}
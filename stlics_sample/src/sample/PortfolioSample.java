@@ -0,0 +1,40 @@
+package sample;
+
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.DebugSolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.PortfolioSolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.Solver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp.Breakout;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp.ForwardChecking;
+import sample.bench.BenchInstances;
+
+/**
+ * 制限のない系統的なソルバと局所探索のソルバをポートフォリオで競わせる実装サンプル．
+ * 目標を設定しなくても，局所探索のソルバが成功した時点で系統的なソルバは打ち切られます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class PortfolioSample {
+
+	static public void main(String args[]) {
+		DebugSolver.debug = false;
+		final CrispProblem p = BenchInstances.queens(100);  // 前方チェック法では現実的な時間で解けない
+
+		final PortfolioSolver s = new PortfolioSolver(p, new PortfolioSolver.Factory() {
+			@Override
+			public Solver create(final Problem q, final int index) {
+				return new ForwardChecking((CrispProblem)q);  // 反復回数も時間も制限しない
+			}
+		}, new PortfolioSolver.Factory() {
+			@Override
+			public Solver create(final Problem q, final int index) {
+				return new Breakout((CrispProblem)q);
+			}
+		});
+		final long t = System.currentTimeMillis();
+		final boolean res = s.solve();
+		System.out.println("Result: " + res + "   Rate: " + p.satisfiedConstraintRate() + "   Time: " + (System.currentTimeMillis() - t));
+	}
+
+}
@@ -1,7 +1,7 @@
 package sample;
 
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
 import jp.ac.hokudai.ist.main.aiwww.stlics.solver.Solver;
@@ -29,7 +29,9 @@ public class SolveFile {
 			Problem p = null;
 			try {
 				p = new Problem();
-				new ProblemReader(new FileReader(FILE_NAME), p).read();
+				ProblemReader r = new ProblemReader(new File(FILE_NAME), p);
+				r.read();
+				System.out.println("Read: " + r.elapsedTime() + "ms   " + (long)(r.throughput() / 1000) + "k chars/s");
 			} catch(FileNotFoundException e) {
 				e.printStackTrace();
             }
@@ -0,0 +1,106 @@
+package sample.bench;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * ベンチマークを計測する簡単なハーネスです．
+ * ウォームアップの後，指定した回数だけ計測を繰り返し，1操作あたりの時間の中央値と最小値を出力します．
+ * 計測対象の返り値は捨てずに集計し，JITによる最適化で計算そのものが消されないようにします．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class Bench {
+
+	/**
+	 * 計測対象を表すクラスです．
+	 */
+	static public abstract class Case {
+
+		/**
+		 * 計測の前に毎回呼び出されます．計測時間には含まれません．
+		 */
+		public void setUp() {}
+
+		/**
+		 * 計測対象の処理を一度実行します．
+		 * @return 処理の結果(計算が最適化により消されないようにするため)
+		 */
+		public abstract double run();
+
+	}
+
+	private final PrintStream out_;
+	private int warmup_ = 5;
+	private int measure_ = 10;
+	private int ops_ = 1;
+	private double sink_;
+
+	/**
+	 * 出力先を指定してハーネスを生成します．
+	 * @param out 出力先
+	 */
+	public Bench(final PrintStream out) {
+		out_ = out;
+	}
+
+	/**
+	 * ウォームアップと計測の回数を指定します．
+	 * @param warmup ウォームアップの回数
+	 * @param measure 計測の回数
+	 * @return このハーネス
+	 */
+	public Bench iterations(final int warmup, final int measure) {
+		warmup_ = warmup;
+		measure_ = measure;
+		return this;
+	}
+
+	/**
+	 * 1回の計測でrunを何回呼び出すかを指定します．
+	 * 1回の処理が短い場合に大きくします．
+	 * @param ops 呼び出し回数
+	 * @return このハーネス
+	 */
+	public Bench operations(final int ops) {
+		ops_ = ops;
+		return this;
+	}
+
+	/**
+	 * 計測を行い，結果を出力します．
+	 * @param name 計測対象の名前
+	 * @param c 計測対象
+	 * @return 1操作あたりの時間の中央値(ナノ秒)
+	 */
+	public double measure(final String name, final Case c) {
+		for(int i = 0; i < warmup_; ++i) once(c);
+		final double[] ts = new double[measure_];
+		for(int i = 0; i < measure_; ++i) ts[i] = once(c) / (double)ops_;
+		Arrays.sort(ts);
+		final double median = ts[ts.length / 2];
+		out_.println(String.format(Locale.US, "%-40s %14.1f ns/op (min %14.1f)", name, median, ts[0]));
+		return median;
+	}
+
+	private long once(final Case c) {
+		c.setUp();
+		double s = 0.0;
+		final long t = System.nanoTime();
+		for(int i = 0; i < ops_; ++i) s += c.run();
+		final long e = System.nanoTime() - t;
+		sink_ += s;
+		return e;
+	}
+
+	/**
+	 * 計測対象の返り値の合計を返します．
+	 * 計測の最後に出力するなどして使うことで，計算が最適化により消されないようにします．
+	 * @return 返り値の合計
+	 */
+	public double sink() {
+		return sink_;
+	}
+
+}
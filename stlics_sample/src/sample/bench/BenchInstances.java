@@ -0,0 +1,104 @@
+package sample.bench;
+
+import java.util.Random;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispTabledRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.FuzzyTabledRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
+
+/**
+ * ベンチマーク用の問題を生成するクラスです．
+ * 乱数の種を指定して生成するため，同じ引数からは常に同じ問題が得られます．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class BenchInstances {
+
+	/**
+	 * N-クイーン問題を生成します．
+	 * @param n クイーンの個数
+	 * @return クリスプ制約充足問題
+	 */
+	static public CrispProblem queens(final int n) {
+		final CrispProblem p = new CrispProblem();
+		final Domain d = p.createDomain(0, n - 1);
+		for(int i = 0; i < n; ++i) p.createVariable("q" + i, d);
+		for(int i = 0; i < n; ++i) {
+			for(int j = i + 1; j < n; ++j) {
+				final int dist = j - i;
+				p.createConstraint(new CrispRelation() {
+					@Override
+					public boolean isSatisfied(final int v1, final int v2) {
+						return v1 != v2 && v1 + dist != v2 && v1 - dist != v2;
+					}
+				}, p.variableAt(i), p.variableAt(j));
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * 表による関係からなるランダム二項クリスプ制約充足問題を生成します．
+	 * @param n 変数の個数
+	 * @param size ドメインの大きさ
+	 * @param density 制約密度(変数の組のうち制約の存在する割合)
+	 * @param tightness 制約の強さ(値の組のうち許されない割合)
+	 * @param seed 乱数の種
+	 * @return クリスプ制約充足問題
+	 */
+	static public CrispProblem randomCrisp(final int n, final int size, final double density, final double tightness, final long seed) {
+		final Random r = new Random(seed);
+		final CrispProblem p = new CrispProblem();
+		final Domain d = p.createDomain(0, size - 1);
+		for(int i = 0; i < n; ++i) p.createVariable("x" + i, d);
+		for(int i = 0; i < n; ++i) {
+			for(int j = i + 1; j < n; ++j) {
+				if(r.nextDouble() >= density) continue;
+				final boolean[] elms = new boolean[size * size];
+				for(int k = 0; k < elms.length; ++k) elms[k] = r.nextDouble() >= tightness;
+				p.createConstraint(new CrispTabledRelation(elms, new Domain[] {d, d}), p.variableAt(i), p.variableAt(j));
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * 表による関係からなるランダム二項ファジィ制約充足問題を生成します．
+	 * 充足度は0.1刻みの一様乱数です．
+	 * @param n 変数の個数
+	 * @param size ドメインの大きさ
+	 * @param density 制約密度(変数の組のうち制約の存在する割合)
+	 * @param seed 乱数の種
+	 * @return ファジィ制約充足問題
+	 */
+	static public Problem randomFuzzy(final int n, final int size, final double density, final long seed) {
+		final Random r = new Random(seed);
+		final Problem p = new Problem();
+		final Domain d = p.createDomain(0, size - 1);
+		for(int i = 0; i < n; ++i) p.createVariable("x" + i, d);
+		for(int i = 0; i < n; ++i) {
+			for(int j = i + 1; j < n; ++j) {
+				if(r.nextDouble() >= density) continue;
+				final double[] elms = new double[size * size];
+				for(int k = 0; k < elms.length; ++k) elms[k] = r.nextInt(11) / 10.0;
+				p.createConstraint(new FuzzyTabledRelation(elms, new Domain[] {d, d}), p.variableAt(i), p.variableAt(j));
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * 全ての変数にドメインの先頭の値を割り当てます．
+	 * 初期割り当てを必要とする局所探索のソルバのために使います．
+	 * @param p 制約充足問題
+	 */
+	static public void assignFirst(final Problem p) {
+		for(Variable v: p.variables()) v.assign(v.domain().at(0));
+	}
+
+	private BenchInstances() {}
+
+}
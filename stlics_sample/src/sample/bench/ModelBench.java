@@ -0,0 +1,212 @@
+package sample.bench;
+
+import java.util.Random;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Constraint;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispTabledRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Domain;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.FuzzyRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.FuzzyTabledRelation;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Variable;
+
+/**
+ * 問題を表すクラスの基本的な処理についてのベンチマークです．
+ * 制約の評価(次数ごと，関係が表か否か)，表による関係の参照，最悪充足度の計算を計測します．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class ModelBench {
+
+	static private final long SEED = 20261017L;
+	static private final int DOMAIN_SIZE = 10;
+	static private final int OPS = 100000;
+
+	static public void main(final String[] args) {
+		final Bench b = new Bench(System.out).iterations(5, 10).operations(OPS);
+		for(int arity = 1; arity <= 4; ++arity) {
+			measureConstraint(b, arity, true);
+			measureConstraint(b, arity, false);
+		}
+		measureTable(b);
+		measureWorstDegree(b, false);
+		measureWorstDegree(b, true);
+		System.out.println("(sink: " + b.sink() + ")");
+	}
+
+	// 次数を指定して制約の評価を計測する．
+	static private void measureConstraint(final Bench b, final int arity, final boolean tabled) {
+		final Random r = new Random(SEED);
+		final Problem fp = new Problem();
+		final CrispProblem cp = new CrispProblem();
+		final Domain d = fp.createDomain(0, DOMAIN_SIZE - 1);
+		final Variable[] fvs = new Variable[arity], cvs = new Variable[arity];
+		final Domain[] ds = new Domain[arity];
+		int size = 1;
+		for(int i = 0; i < arity; ++i) {
+			fvs[i] = fp.createVariable(d);
+			cvs[i] = cp.createVariable(d);
+			ds[i] = d;
+			size *= DOMAIN_SIZE;
+		}
+		final double[] degs = new double[size];
+		final boolean[] sats = new boolean[size];
+		for(int i = 0; i < size; ++i) {
+			degs[i] = r.nextInt(11) / 10.0;
+			sats[i] = r.nextBoolean();
+		}
+		final Constraint fc = fp.createConstraint(tabled ? new FuzzyTabledRelation(degs, ds) : new ArithmeticFuzzyRelation(), fvs);
+		final Constraint cc = cp.createConstraint(tabled ? new CrispTabledRelation(sats, ds) : new ArithmeticCrispRelation(), cvs);
+
+		final String kind = arity + "-ary " + (tabled ? "tabled" : "computed");
+		b.measure("satisfactionDegree " + kind, new Bench.Case() {
+			private int k_;
+			@Override
+			public double run() {
+				fvs[k_ % fvs.length].assign(k_ % DOMAIN_SIZE);
+				++k_;
+				return fc.satisfactionDegree();
+			}
+			@Override
+			public void setUp() {
+				for(Variable v: fvs) v.assign(0);
+			}
+		});
+		b.measure("isSatisfied " + kind, new Bench.Case() {
+			private int k_;
+			@Override
+			public double run() {
+				cvs[k_ % cvs.length].assign(k_ % DOMAIN_SIZE);
+				++k_;
+				return cc.isSatisfied();
+			}
+			@Override
+			public void setUp() {
+				for(Variable v: cvs) v.assign(0);
+			}
+		});
+	}
+
+	// 表による二項関係の参照を計測する．
+	static private void measureTable(final Bench b) {
+		final Random r = new Random(SEED);
+		final Problem p = new Problem();
+		final Domain d = p.createDomain(0, DOMAIN_SIZE - 1);
+		final double[] degs = new double[DOMAIN_SIZE * DOMAIN_SIZE];
+		final boolean[] sats = new boolean[DOMAIN_SIZE * DOMAIN_SIZE];
+		for(int i = 0; i < degs.length; ++i) {
+			degs[i] = r.nextInt(11) / 10.0;
+			sats[i] = r.nextDouble() < 0.3;
+		}
+		final FuzzyTabledRelation fr = new FuzzyTabledRelation(degs, new Domain[] {d, d});
+		final CrispTabledRelation cr = new CrispTabledRelation(sats, new Domain[] {d, d});
+		final long[] all = new long[(DOMAIN_SIZE + 63) / 64];
+		for(int i = 0; i < DOMAIN_SIZE; ++i) all[i / 64] |= 1L << (i % 64);
+
+		b.measure("FuzzyTabledRelation by value", new Bench.Case() {
+			private int k_;
+			@Override
+			public double run() {
+				++k_;
+				return fr.satisfactionDegree(k_ % DOMAIN_SIZE, (k_ / DOMAIN_SIZE) % DOMAIN_SIZE);
+			}
+		});
+		b.measure("FuzzyTabledRelation by index", new Bench.Case() {
+			private int k_;
+			@Override
+			public double run() {
+				++k_;
+				return fr.satisfactionDegreeAt(k_ % DOMAIN_SIZE, (k_ / DOMAIN_SIZE) % DOMAIN_SIZE);
+			}
+		});
+		b.measure("CrispTabledRelation by value", new Bench.Case() {
+			private int k_;
+			@Override
+			public double run() {
+				++k_;
+				return cr.isSatisfied(k_ % DOMAIN_SIZE, (k_ / DOMAIN_SIZE) % DOMAIN_SIZE) ? 1 : 0;
+			}
+		});
+		b.measure("CrispTabledRelation findSupport", new Bench.Case() {
+			private int k_;
+			@Override
+			public double run() {
+				++k_;
+				return cr.findSupport(k_ & 1, k_ % DOMAIN_SIZE, all);
+			}
+		});
+	}
+
+	// 最悪充足度の計算を，1変数の値を変更するごとに計測する．
+	static private void measureWorstDegree(final Bench b, final boolean incremental) {
+		final Problem p = BenchInstances.randomFuzzy(100, DOMAIN_SIZE, 0.3, SEED);
+		p.setUsingIncrementalEvaluation(incremental);
+		BenchInstances.assignFirst(p);
+		final Random r = new Random(SEED);
+		b.operations(OPS / 100).measure("worstSatisfactionDegree" + (incremental ? " (incremental)" : ""), new Bench.Case() {
+			@Override
+			public double run() {
+				p.variableAt(r.nextInt(p.variableSize())).assign(r.nextInt(DOMAIN_SIZE));
+				return p.worstSatisfactionDegree();
+			}
+		});
+		b.operations(OPS);
+	}
+
+	// 表によらず計算により定義されるファジィ関係
+	static private class ArithmeticFuzzyRelation extends FuzzyRelation {
+
+		@Override
+		public double satisfactionDegree(final int value) {
+			return (value % 11) / 10.0;
+		}
+
+		@Override
+		public double satisfactionDegree(final int value1, final int value2) {
+			return ((value1 * 7 + value2) % 11) / 10.0;
+		}
+
+		@Override
+		public double satisfactionDegree(final int value1, final int value2, final int value3) {
+			return ((value1 * 7 + value2 * 3 + value3) % 11) / 10.0;
+		}
+
+		@Override
+		public double satisfactionDegree(final int... values) {
+			int s = 0;
+			for(int v: values) s = s * 7 + v;
+			return (s % 11) / 10.0;
+		}
+
+	}
+
+	// 表によらず計算により定義されるクリスプ関係
+	static private class ArithmeticCrispRelation extends CrispRelation {
+
+		@Override
+		public boolean isSatisfied(final int value) {
+			return (value & 1) == 0;
+		}
+
+		@Override
+		public boolean isSatisfied(final int value1, final int value2) {
+			return value1 != value2;
+		}
+
+		@Override
+		public boolean isSatisfied(final int value1, final int value2, final int value3) {
+			return value1 != value2 && value2 != value3;
+		}
+
+		@Override
+		public boolean isSatisfied(final int... values) {
+			for(int i = 1; i < values.length; ++i) {
+				if(values[i - 1] == values[i]) return false;
+			}
+			return true;
+		}
+
+	}
+
+}
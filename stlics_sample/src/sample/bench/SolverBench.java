@@ -0,0 +1,173 @@
+package sample.bench;
+
+import java.util.Locale;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.CrispProblem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.problem.Problem;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.DebugSolver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.Solver;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp.Breakout;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp.CrispSRS3;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp.ForwardChecking;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp.GENET;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp.LocalChanges;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp.LocalChangesEx;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.crisp.MaxForwardChecking;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.FlexibleLocalChanges;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.FuzzyBreakout;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.FuzzyForwardChecking;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.FuzzyForwardChecking2;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.FuzzyForwardChecking2_v2;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.FuzzyGENET;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.SRS3;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.fuzzy.SRS3_PF;
+import jp.ac.hokudai.ist.main.aiwww.stlics.solver.trait.StochasticSolver;
+
+/**
+ * 同梱されている各ソルバについて，生成した問題を解くまでの時間と得られた解の質を計測するベンチマークです．
+ * 問題は種を固定して生成され，計測のたびに作り直されます．確率的探索を行うソルバの乱数の種も固定されます．
+ * 引数に時間制限(ミリ秒)を指定できます．デフォルトは2000です．
+ * @author Takuto Yanagida
+ * @version 2026/10/17
+ */
+public class SolverBench {
+
+	static private final long SEED = 20261017L;
+
+	// 問題を生成するインタフェース
+	static private interface Instance {
+		Problem create();
+	}
+
+	// ソルバを生成するインタフェース
+	static private interface SolverFactory {
+		Solver create(final Problem p);
+	}
+
+	static public void main(final String[] args) {
+		final int timeLimit = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		DebugSolver.debug = false;
+		final Bench b = new Bench(System.out).iterations(1, 5);
+
+		final Instance queens = new Instance() {
+			@Override
+			public Problem create() {
+				return BenchInstances.queens(32);
+			}
+		};
+		final Instance crisp = new Instance() {
+			@Override
+			public Problem create() {
+				return BenchInstances.randomCrisp(40, 10, 0.2, 0.3, SEED);
+			}
+		};
+		final Instance fuzzy = new Instance() {
+			@Override
+			public Problem create() {
+				return BenchInstances.randomFuzzy(20, 6, 0.3, SEED);
+			}
+		};
+
+		final SolverFactory[] crispSolvers = {
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new ForwardChecking((CrispProblem)p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new MaxForwardChecking((CrispProblem)p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new Breakout((CrispProblem)p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new GENET((CrispProblem)p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new LocalChanges((CrispProblem)p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new LocalChangesEx((CrispProblem)p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new CrispSRS3((CrispProblem)p);}
+			},
+		};
+		final SolverFactory[] fuzzySolvers = {
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new FuzzyForwardChecking(p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new FuzzyForwardChecking2(p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new FuzzyForwardChecking2_v2(p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new FuzzyBreakout(p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new FuzzyGENET(p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new FlexibleLocalChanges(p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new SRS3(p);}
+			},
+			new SolverFactory() {
+				@Override
+				public Solver create(final Problem p) {return new SRS3_PF(p);}
+			},
+		};
+
+		for(SolverFactory f: crispSolvers) {
+			measure(b, "queens32", queens, f, timeLimit, 1.0);
+			measure(b, "random40", crisp, f, timeLimit, 1.0);
+		}
+		for(SolverFactory f: fuzzySolvers) {
+			measure(b, "fuzzy20", fuzzy, f, timeLimit, Solver.UNSPECIFIED);
+		}
+		System.out.println("(sink: " + b.sink() + ")");
+	}
+
+	// 問題を解く時間と解の質を計測する．
+	static private void measure(final Bench b, final String instanceName, final Instance inst, final SolverFactory f, final int timeLimit, final double target) {
+		final double[] sum = new double[2];
+		final String name = f.create(inst.create()).name();
+		b.measure(name + " / " + instanceName, new Bench.Case() {
+			private Problem p_;
+			private Solver s_;
+			@Override
+			public void setUp() {
+				p_ = inst.create();
+				BenchInstances.assignFirst(p_);
+				s_ = f.create(p_);
+				if(s_ instanceof StochasticSolver) ((StochasticSolver)s_).setSeed(SEED);
+				s_.setTimeLimit(timeLimit);
+				s_.setTargetRate(target);
+			}
+			@Override
+			public double run() {
+				s_.solve();
+				final double q = (p_ instanceof CrispProblem) ? ((CrispProblem)p_).satisfiedConstraintRate() : p_.worstSatisfactionDegree();
+				sum[0] += q;
+				sum[1] += 1;
+				return q;
+			}
+		});
+		System.out.println(String.format(Locale.US, "%-40s quality %.4f", "", sum[0] / sum[1]));
+	}
+
+}